@@ -0,0 +1,154 @@
+package com.openclassrooms.starterjwt.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent in-memory cache whose entries expire at a per-entry deadline and whose size is capped.
+ * When the cap is reached, expired entries are purged first, then arbitrary entries are dropped
+ * until the cache is back under its low-water mark, so memory never grows past {@code maxEntries}.
+ */
+public class BoundedExpiringCache<K, V> {
+    private static final double LOW_WATER_MARK = 0.9;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final Clock clock;
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedExpiringCache(int maxEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isExpired(clock.millis())) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (maxEntries <= 0) {
+            return;
+        }
+
+        long now = clock.millis();
+        if (expiresAtMillis <= now) {
+            return;
+        }
+
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            makeRoom(now);
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateIf(Predicate<V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Publishes the size and hit/miss/eviction counters with the standard Micrometer cache meter names.
+     */
+    public void bindTo(MeterRegistry meterRegistry, String cacheName) {
+        Gauge.builder("cache.size", this, BoundedExpiringCache::size)
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", this, BoundedExpiringCache::getHits)
+                .tags("cache", cacheName, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", this, BoundedExpiringCache::getMisses)
+                .tags("cache", cacheName, "result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", this, BoundedExpiringCache::getEvictions)
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    private void makeRoom(long now) {
+        synchronized (evictionLock) {
+            if (entries.size() < maxEntries) {
+                return;
+            }
+
+            Iterator<Entry<V>> expiredIterator = entries.values().iterator();
+            while (expiredIterator.hasNext()) {
+                if (expiredIterator.next().isExpired(now)) {
+                    expiredIterator.remove();
+                    evictions.increment();
+                }
+            }
+
+            int lowWaterMark = (int) (maxEntries * LOW_WATER_MARK);
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (entries.size() > lowWaterMark && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtMillis;
+
+        private Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.openclassrooms.starterjwt.controllers;
 
 import javax.validation.Valid;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,8 +22,13 @@ import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.PasswordRehashService;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
+import com.openclassrooms.starterjwt.security.ratelimit.AuthRateLimiter;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.RegisteredEmailIndex;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -31,47 +38,64 @@ public class AuthController {
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final PasswordRehashService passwordRehashService;
+    private final AuthRateLimiter authRateLimiter;
+    private final TokenRevocationService tokenRevocationService;
+    private final OpaqueTokenService opaqueTokenService;
+    private final RegisteredEmailIndex registeredEmailIndex;
 
     AuthController(AuthenticationManager authenticationManager,
             PasswordEncoder passwordEncoder,
             JwtUtils jwtUtils,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            PasswordRehashService passwordRehashService,
+            AuthRateLimiter authRateLimiter,
+            TokenRevocationService tokenRevocationService,
+            OpaqueTokenService opaqueTokenService,
+            RegisteredEmailIndex registeredEmailIndex) {
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.passwordRehashService = passwordRehashService;
+        this.authRateLimiter = authRateLimiter;
+        this.tokenRevocationService = tokenRevocationService;
+        this.opaqueTokenService = opaqueTokenService;
+        this.registeredEmailIndex = registeredEmailIndex;
     }
 
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        if (!authRateLimiter.tryAcquireEmail(loginRequest.getEmail())) {
+            return ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new MessageResponse("Error: Too many login attempts!"));
+        }
 
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-
-        boolean isAdmin = false;
-        User user = this.userRepository.findByEmail(userDetails.getUsername()).orElse(null);
-        if (user != null) {
-            isAdmin = user.isAdmin();
-        }
+        String jwt = opaqueTokenService.isEnabled()
+                ? opaqueTokenService.issue(userDetails)
+                : jwtUtils.generateJwtToken(authentication);
+        passwordRehashService.rehashIfOutdated(userDetails, loginRequest.getPassword());
 
         return ResponseEntity.ok(new JwtResponse(jwt,
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getFirstName(),
                 userDetails.getLastName(),
-                isAdmin));
+                Boolean.TRUE.equals(userDetails.getAdmin())));
     }
 
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: Email is already taken!"));
+        // A definite miss of the index skips the existence query, the unique constraint still guards the insert
+        if (registeredEmailIndex.mightBeRegistered(signUpRequest.getEmail())
+                && userRepository.existsByEmail(signUpRequest.getEmail())) {
+            return emailAlreadyTaken();
         }
 
         // Create new user's account
@@ -81,8 +105,33 @@ public class AuthController {
                 passwordEncoder.encode(signUpRequest.getPassword()),
                 false);
 
-        userRepository.save(user);
+        try {
+            userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            return emailAlreadyTaken();
+        }
+        registeredEmailIndex.add(user.getEmail());
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logoutUser() {
+        boolean revoked = opaqueTokenService.isEnabled()
+                ? opaqueTokenService.revokeCurrentToken()
+                : tokenRevocationService.revokeCurrentToken();
+        if (!revoked) {
+            return ResponseEntity
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Error: No valid token to revoke!"));
+        }
+
+        return ResponseEntity.ok(new MessageResponse("Logged out successfully!"));
+    }
+
+    private ResponseEntity<MessageResponse> emailAlreadyTaken() {
+        return ResponseEntity
+                .badRequest()
+                .body(new MessageResponse("Error: Email is already taken!"));
+    }
 }
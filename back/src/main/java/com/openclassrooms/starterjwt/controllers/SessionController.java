@@ -2,34 +2,78 @@ package com.openclassrooms.starterjwt.controllers;
 
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.UnknownReferenceException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.WaitlistResponse;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionExportService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final SessionExportService sessionExportService;
+
+    /**
+     * Whether a request without cursor nor limit still gets the whole unpaginated list, as the Angular client expects.
+     */
+    @Value("${oc.app.sessionUnpagedListing:true}")
+    private boolean unpagedListing;
+
+    @Value("${oc.app.sessionPageSize:20}")
+    private int defaultPageSize;
+
+    @Value("${oc.app.sessionMaxPageSize:100}")
+    private int maxPageSize;
 
+    /**
+     * Whether the listing, respectively the detail, reads DTO projections instead of mapping Session entities.
+     */
+    @Value("${oc.app.sessionListingProjection:true}")
+    private boolean listingProjection;
+
+    @Value("${oc.app.sessionDetailProjection:true}")
+    private boolean detailProjection;
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             SessionExportService sessionExportService) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.sessionExportService = sessionExportService;
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> findById(@PathVariable("id") String id) {
         try {
+            if (this.detailProjection) {
+                SessionDto sessionDto = this.sessionService.getDtoById(Long.valueOf(id));
+
+                return sessionDto == null ? ResponseEntity.notFound().build() : ResponseEntity.ok().body(sessionDto);
+            }
+
             Session session = this.sessionService.getById(Long.valueOf(id));
 
             if (session == null) {
@@ -43,20 +87,64 @@ public class SessionController {
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(SessionFilter filter,
+                                     @RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "limit", required = false) Integer limit) {
+        if (cursor == null && limit == null && filter.isEmpty() && this.unpagedListing) {
+            List<SessionDto> sessions = this.listingProjection
+                    ? this.sessionService.findAllDtos()
+                    : this.sessionMapper.toDto(this.sessionService.findAll());
+
+            return ResponseEntity.ok().body(sessions);
+        }
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int pageSize = limit == null ? this.defaultPageSize : Math.min(limit, this.maxPageSize);
+        SessionCursor after = cursor == null ? null : SessionCursor.decode(cursor);
+        // One extra row tells whether a following page exists without a count query
+        List<SessionDto> sessions = this.listingProjection
+                ? this.sessionService.findDtoPage(filter, after, pageSize + 1)
+                : this.sessionMapper.toDto(this.sessionService.findPage(filter, after, pageSize + 1));
+
+        String nextCursor = null;
+        if (sessions.size() > pageSize) {
+            sessions = sessions.subList(0, pageSize);
+            nextCursor = SessionCursor.of(sessions.get(pageSize - 1)).encode();
+        }
+        return ResponseEntity.ok().body(new SessionPageDto(sessions, nextCursor));
+    }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+    /**
+     * Streams the whole catalog with its participant ids, as JSON Lines or CSV, without holding it in memory.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> export(@RequestParam(value = "format", defaultValue = SessionExportService.JSON_LINES) String format) {
+        if (!this.sessionExportService.supports(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (SessionExportService.CSV.equals(format)) {
+            StreamingResponseBody body = this.sessionExportService::exportCsv;
+            return ResponseEntity.ok().contentType(TEXT_CSV).body(body);
+        }
+        StreamingResponseBody body = this.sessionExportService::exportJsonLines;
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
     }
 
     @PostMapping()
     public ResponseEntity<?> create(@Valid @RequestBody SessionDto sessionDto) {
         log.info(sessionDto);
 
-        Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
+        try {
+            Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
 
-        log.info(session);
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            log.info(session);
+            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+        } catch (UnknownReferenceException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
     }
 
     @PutMapping("{id}")
@@ -67,6 +155,8 @@ public class SessionController {
             return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
+        } catch (BadRequestException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         }
     }
 
@@ -89,14 +179,28 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            Optional<Integer> waitlistPosition = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
+            if (waitlistPosition.isPresent()) {
+                return ResponseEntity.accepted().body(new WaitlistResponse(waitlistPosition.get()));
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping("{id}/waitlist/{userId}")
+    public ResponseEntity<?> findWaitlistPosition(@PathVariable("id") String id, @PathVariable("userId") String userId) {
+        try {
+            return this.sessionService.findWaitlistPosition(Long.parseLong(id), Long.parseLong(userId))
+                    .<ResponseEntity<?>>map(position -> ResponseEntity.ok().body(new WaitlistResponse(position)))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("{id}/participate/{userId}")
     public ResponseEntity<?> noLongerParticipate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
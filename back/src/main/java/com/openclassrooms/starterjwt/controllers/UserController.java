@@ -2,13 +2,21 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.UserImportResponse;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.UserImportService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Objects;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -17,12 +25,21 @@ import java.util.Objects;
 public class UserController {
     private final UserMapper userMapper;
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
+    private final OpaqueTokenService opaqueTokenService;
+    private final UserImportService userImportService;
 
 
     public UserController(UserService userService,
-                             UserMapper userMapper) {
+                             UserMapper userMapper,
+                             TokenRevocationService tokenRevocationService,
+                             OpaqueTokenService opaqueTokenService,
+                             UserImportService userImportService) {
         this.userMapper = userMapper;
         this.userService = userService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.opaqueTokenService = opaqueTokenService;
+        this.userImportService = userImportService;
     }
 
     @GetMapping("/{id}")
@@ -56,9 +73,39 @@ public class UserController {
             }
 
             this.userService.delete(Long.parseLong(id));
+            if (this.opaqueTokenService.isEnabled()) {
+                this.opaqueTokenService.revokeAll(user.getEmail());
+            } else {
+                this.tokenRevocationService.revokeCurrentToken();
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importJson(InputStream body) throws IOException {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        UserImportResponse response = this.userImportService.importJson(body);
+        return ResponseEntity.ok().body(response);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importCsv(InputStream body) throws IOException {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        UserImportResponse response = this.userImportService.importCsv(body);
+        return ResponseEntity.ok().body(response);
+    }
+
+    private boolean isAdmin() {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        return principal instanceof UserDetailsImpl && Boolean.TRUE.equals(((UserDetailsImpl) principal).getAdmin());
+    }
 }
@@ -0,0 +1,19 @@
+package com.openclassrooms.starterjwt.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionPageDto {
+    private List<SessionDto> sessions;
+
+    /**
+     * Cursor to pass back to get the following page, null on the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,10 @@
+package com.openclassrooms.starterjwt.exception;
+
+/**
+ * Thrown when a request refers to users or teachers that do not exist, its message listing the unknown ids.
+ */
+public class UnknownReferenceException extends BadRequestException {
+    public UnknownReferenceException(String message) {
+        super(message);
+    }
+}
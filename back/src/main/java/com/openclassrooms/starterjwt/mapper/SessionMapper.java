@@ -3,17 +3,17 @@ package com.openclassrooms.starterjwt.mapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.Hibernate;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Component
@@ -24,11 +24,14 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     TeacherService teacherService;
     @Autowired
     UserService userService;
+    @Autowired
+    SessionService sessionService;
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
-            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.getExisting(sessionDto.getTeacher_id()) : null)"),
+            @Mapping(target = "users", expression = "java(this.userService.getReferences(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList)))"),
+            @Mapping(target = "seatsTaken", ignore = true),
     })
     public abstract Session toEntity(SessionDto sessionDto);
 
@@ -36,7 +39,59 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
+            @Mapping(target = "users", ignore = true),
+            @Mapping(target = "participantCount", ignore = true),
     })
-    public abstract SessionDto toDto(Session session);
+    protected abstract SessionDto toDtoWithoutParticipants(Session session);
+
+    /**
+     * Participants come from the session when its users are already in memory,
+     * otherwise from the participant id projection, so that mapping never loads User entities.
+     */
+    @Override
+    public SessionDto toDto(Session session) {
+        if (session == null) {
+            return null;
+        }
+
+        List<Long> participantIds = null;
+        if (hasParticipantsToLoad(session)) {
+            participantIds = this.sessionService.findParticipantIds(Collections.singletonList(session.getId())).get(session.getId());
+        }
+        return toDto(session, participantIds);
+    }
+
+    /**
+     * Maps the sessions with a single participant id query for all of them.
+     */
+    @Override
+    public List<SessionDto> toDto(List<Session> sessions) {
+        if (sessions == null) {
+            return null;
+        }
+
+        List<Long> sessionIds = sessions.stream()
+                .filter(this::hasParticipantsToLoad)
+                .map(Session::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<Long>> participantIds = this.sessionService.findParticipantIds(sessionIds);
+
+        return sessions.stream()
+                .map(session -> toDto(session, participantIds.get(session.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private boolean hasParticipantsToLoad(Session session) {
+        return session.getId() != null && !Hibernate.isInitialized(session.getUsers());
+    }
+
+    private SessionDto toDto(Session session, List<Long> loadedParticipantIds) {
+        SessionDto sessionDto = toDtoWithoutParticipants(session);
+        List<Long> participantIds = loadedParticipantIds != null
+                ? loadedParticipantIds
+                : Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(User::getId).collect(Collectors.toList());
+        sessionDto.setUsers(participantIds);
+        sessionDto.setParticipantCount(participantIds.size());
+        return sessionDto;
+    }
 }
@@ -0,0 +1,29 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Opaque access token, stored as the SHA-256 of the token so that the table never holds usable credentials.
+ */
+@Entity
+@Table(name = "AUTH_TOKENS", indexes = {
+    @Index(name = "idx_auth_tokens_username", columnList = "username"),
+    @Index(name = "idx_auth_tokens_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthToken {
+  @Id
+  @Column(name = "token_hash", length = 44)
+  private String tokenHash;
+
+  @Column(nullable = false)
+  private String username;
+
+  @Column(name = "expires_at", nullable = false)
+  private LocalDateTime expiresAt;
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Identifier of a JWT revoked before its expiration, kept until the token would have expired anyway.
+ */
+@Entity
+@Table(name = "REVOKED_TOKENS", indexes = {
+    @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+  @Id
+  @Column(length = 36)
+  private String jti;
+
+  @Column(name = "expires_at", nullable = false)
+  private LocalDateTime expiresAt;
+}
@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,7 +17,10 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(name = "SESSIONS")
+@Table(name = "SESSIONS", indexes = {
+    @Index(name = "idx_sessions_date_id", columnList = "date, id"),
+    @Index(name = "idx_sessions_teacher_id_date", columnList = "teacher_id, date")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @Accessors(chain = true)
@@ -27,7 +31,8 @@ import java.util.List;
 @ToString
 public class Session {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "session_id")
+    @SequenceGenerator(name = "session_id", sequenceName = "SESSIONS_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -41,15 +46,34 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    /**
+     * Maximum number of participants, unlimited when null.
+     */
+    @Min(1)
+    private Integer capacity;
+
+    /**
+     * Participant count, only maintained by the conditional updates of SessionRepository so that it never
+     * exceeds the capacity, whatever the number of concurrent bookings.
+     */
+    @Column(name = "seats_taken", insertable = false, updatable = false)
+    private int seatsTaken;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    /**
+     * Participants, only loaded when accessed: reads go through the id projections of SessionRepository.
+     */
+    @ManyToMany(fetch = FetchType.LAZY)
+    @ToString.Exclude
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+            inverseJoinColumns = @JoinColumn( name = "user_id" ),
+            uniqueConstraints = @UniqueConstraint(columnNames = {"session_id", "user_id"}),
+            indexes = @Index(name = "idx_participate_user_id_session_id", columnList = "user_id, session_id") )
     private List<User> users;
 
     @CreatedDate
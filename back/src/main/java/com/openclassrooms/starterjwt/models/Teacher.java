@@ -23,7 +23,8 @@ import java.time.LocalDateTime;
 @ToString
 public class Teacher {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "teacher_id")
+    @SequenceGenerator(name = "teacher_id", sequenceName = "TEACHERS_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -25,8 +25,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @ToString
 public class User {
+  /**
+   * Ids come in blocks of 50 from the USERS_SEQ table (a sequence where the database has them), so that inserts
+   * can be batched, which the IDENTITY generation prevents.
+   */
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id")
+  @SequenceGenerator(name = "user_id", sequenceName = "USERS_SEQ", allocationSize = 50)
   private Long id;
 
   @NonNull
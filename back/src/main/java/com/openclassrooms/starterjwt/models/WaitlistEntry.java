@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Place of a user waiting for a seat in a full session, the lowest id being the head of the queue.
+ */
+@Entity
+@Table(name = "WAITLIST",
+    uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_session_id_user_id", columnNames = {"session_id", "user_id"}),
+    indexes = @Index(name = "idx_waitlist_session_id_id", columnList = "session_id, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntry {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "session_id", nullable = false)
+  private Long sessionId;
+
+  @Column(name = "user_id", nullable = false)
+  private Long userId;
+
+  @CreationTimestamp
+  @Column(name = "created_at", updatable = false)
+  private LocalDateTime createdAt;
+}
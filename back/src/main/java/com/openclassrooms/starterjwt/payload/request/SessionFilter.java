@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.payload.request;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.util.Date;
+
+/**
+ * Optional criteria of the session listing, bound from the query string. Unset criteria do not filter.
+ */
+@Data
+public class SessionFilter {
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+  private Date from;
+
+  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+  private Date to;
+
+  private Long teacherId;
+
+  private Boolean hasFreeSeats;
+
+  private Long participantId;
+
+  public boolean isEmpty() {
+    return from == null && to == null && teacherId == null && hasFreeSeats == null && participantId == null;
+  }
+}
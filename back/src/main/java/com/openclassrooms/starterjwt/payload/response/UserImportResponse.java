@@ -0,0 +1,27 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+public class UserImportResponse {
+  private int imported;
+
+  private int failed;
+
+  /** First rejected rows, capped so that a broken file does not produce an unbounded response. */
+  private List<RowError> errors = new ArrayList<>();
+
+  @Data
+  @AllArgsConstructor
+  public static class RowError {
+    private int row;
+
+    private String email;
+
+    private String message;
+  }
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistResponse {
+  /**
+   * 1 for the user promoted on the next cancellation.
+   */
+  private int position;
+}
@@ -0,0 +1,34 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.models.AuthToken;
+
+@Repository
+public interface AuthTokenRepository extends JpaRepository<AuthToken, String> {
+  @Query("SELECT t FROM AuthToken t WHERE t.expiresAt > :now")
+  List<AuthToken> findActive(@Param("now") LocalDateTime now);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM AuthToken t WHERE t.expiresAt <= :now")
+  int deleteExpired(@Param("now") LocalDateTime now);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM AuthToken t WHERE t.tokenHash = :tokenHash")
+  int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM AuthToken t WHERE t.username = :username")
+  int deleteByUsername(@Param("username") String username);
+}
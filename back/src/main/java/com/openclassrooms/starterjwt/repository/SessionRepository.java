@@ -2,8 +2,68 @@ package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    /**
+     * Participant ids of the given sessions, read from the join table alone without loading any User.
+     */
+    @Query(value = "SELECT session_id AS sessionId, user_id AS userId FROM PARTICIPATE WHERE session_id IN (:sessionIds)",
+            nativeQuery = true)
+    List<Participation> findParticipations(@Param("sessionIds") Collection<Long> sessionIds);
+
+    /**
+     * Adds the participant in one statement, inserting nothing when the session or the user does not exist.
+     * An existing participation is rejected by the (session_id, user_id) primary key.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO PARTICIPATE (session_id, user_id) "
+            + "SELECT s.id, u.id FROM SESSIONS s, USERS u WHERE s.id = :sessionId AND u.id = :userId",
+            nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    /**
+     * Takes a seat only while the session is not full. The check and the increment are one atomic statement, which
+     * locks the session row alone until the booking transaction ends.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET seats_taken = seats_taken + 1 "
+            + "WHERE id = :sessionId AND (capacity IS NULL OR seats_taken < capacity)", nativeQuery = true)
+    int takeSeat(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET seats_taken = seats_taken - 1 WHERE id = :sessionId AND seats_taken > 0",
+            nativeQuery = true)
+    int releaseSeat(@Param("sessionId") Long sessionId);
+
+    /**
+     * Recounts the seats after the participants were replaced through the Session aggregate.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE SESSIONS SET seats_taken = (SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :sessionId) "
+            + "WHERE id = :sessionId", nativeQuery = true)
+    int recountSeats(@Param("sessionId") Long sessionId);
+
+    interface Participation {
+        Long getSessionId();
+
+        Long getUserId();
+    }
 }
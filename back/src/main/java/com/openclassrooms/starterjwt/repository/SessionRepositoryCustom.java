@@ -0,0 +1,25 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface SessionRepositoryCustom {
+  /**
+   * At most limit sessions matching the specification in (date, id) order, without the count query of a Page.
+   */
+  List<Session> findPage(Specification<Session> specification, int limit);
+
+  /**
+   * Sessions matching the specification in (date, id) order, built as DTOs by a constructor projection so that no
+   * entity is managed. Their participants are left null.
+   */
+  List<SessionDto> findDtos(Specification<Session> specification);
+
+  /**
+   * At most limit session DTOs, as {@link #findDtos(Specification)}.
+   */
+  List<SessionDto> findDtoPage(Specification<Session> specification, int limit);
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+public class SessionRepositoryImpl implements SessionRepositoryCustom {
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<Session> findPage(Specification<Session> specification, int limit) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Session> query = builder.createQuery(Session.class);
+    Root<Session> root = query.from(Session.class);
+
+    Predicate predicate = specification.toPredicate(root, query, builder);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(builder.asc(root.get("date")), builder.asc(root.get("id")));
+
+    return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+  }
+
+  @Override
+  public List<SessionDto> findDtos(Specification<Session> specification) {
+    return dtoQuery(specification).getResultList();
+  }
+
+  @Override
+  public List<SessionDto> findDtoPage(Specification<Session> specification, int limit) {
+    return dtoQuery(specification).setMaxResults(limit).getResultList();
+  }
+
+  /**
+   * The teacher id is read from the teacher_id column, without joining TEACHERS.
+   */
+  private TypedQuery<SessionDto> dtoQuery(Specification<Session> specification) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<SessionDto> query = builder.createQuery(SessionDto.class);
+    Root<Session> root = query.from(Session.class);
+
+    query.select(builder.construct(SessionDto.class,
+        root.get("id"),
+        root.get("name"),
+        root.get("date"),
+        root.get("teacher").get("id"),
+        root.get("description"),
+        root.get("capacity"),
+        root.get("createdAt"),
+        root.get("updatedAt")));
+    Predicate predicate = specification.toPredicate(root, query, builder);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(builder.asc(root.get("date")), builder.asc(root.get("id")));
+
+    return entityManager.createQuery(query);
+  }
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Join;
+import java.util.Date;
+
+/**
+ * Criteria of the session listing, each one matching an index: idx_sessions_date_id for the date window and the
+ * keyset position, idx_sessions_teacher_id_date for the teacher and idx_participate_user_id_session_id for the
+ * participant.
+ */
+public final class SessionSpecifications {
+  private SessionSpecifications() {
+  }
+
+  public static Specification<Session> matching(SessionFilter filter) {
+    Specification<Session> specification = Specification.where(null);
+    if (filter == null) {
+      return specification;
+    }
+    if (filter.getFrom() != null) {
+      specification = specification.and(startingFrom(filter.getFrom()));
+    }
+    if (filter.getTo() != null) {
+      specification = specification.and(startingBefore(filter.getTo()));
+    }
+    if (filter.getTeacherId() != null) {
+      specification = specification.and(withTeacher(filter.getTeacherId()));
+    }
+    if (filter.getHasFreeSeats() != null) {
+      specification = specification.and(filter.getHasFreeSeats() ? withFreeSeats() : Specification.not(withFreeSeats()));
+    }
+    if (filter.getParticipantId() != null) {
+      specification = specification.and(withParticipant(filter.getParticipantId()));
+    }
+    return specification;
+  }
+
+  public static Specification<Session> withId(Long id) {
+    return (root, query, builder) -> builder.equal(root.get("id"), id);
+  }
+
+  public static Specification<Session> startingFrom(Date from) {
+    return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("date"), from);
+  }
+
+  public static Specification<Session> startingBefore(Date to) {
+    return (root, query, builder) -> builder.lessThan(root.get("date"), to);
+  }
+
+  public static Specification<Session> withTeacher(Long teacherId) {
+    return (root, query, builder) -> builder.equal(root.get("teacher").get("id"), teacherId);
+  }
+
+  /**
+   * Sessions without capacity are never full. Compares the seat counter, so no participant is counted.
+   */
+  public static Specification<Session> withFreeSeats() {
+    return (root, query, builder) -> builder.or(
+        builder.isNull(root.get("capacity")),
+        builder.lessThan(root.get("seatsTaken"), root.get("capacity")));
+  }
+
+  public static Specification<Session> withParticipant(Long userId) {
+    return (root, query, builder) -> {
+      Join<Session, User> users = root.join("users");
+      return builder.equal(users.get("id"), userId);
+    };
+  }
+
+  /**
+   * Sessions following the given (date, id) position of the listing order.
+   */
+  public static Specification<Session> after(Date date, Long id) {
+    return (root, query, builder) -> builder.or(
+        builder.greaterThan(root.get("date"), date),
+        builder.and(builder.equal(root.get("date"), date), builder.greaterThan(root.get("id"), id)));
+  }
+}
@@ -1,9 +1,15 @@
 package com.openclassrooms.starterjwt.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.openclassrooms.starterjwt.models.User;
 
@@ -12,4 +18,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByEmail(String email);
 
   Boolean existsByEmail(String email); 
+
+  @Query("SELECT u.email FROM User u")
+  List<String> findAllEmails();
+
+  @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+  List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+  @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+  List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Replaces the password hash only if it is still the one that was verified, so a concurrent change is never overwritten.
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE User u SET u.password = :newPassword WHERE u.email = :email AND u.password = :oldPassword")
+  int updatePassword(@Param("email") String email,
+                     @Param("oldPassword") String oldPassword,
+                     @Param("newPassword") String newPassword);
 }
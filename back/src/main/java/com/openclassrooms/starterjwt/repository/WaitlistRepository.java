@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+  List<WaitlistEntry> findBySessionIdOrderByIdAsc(Long sessionId);
+
+  Optional<WaitlistEntry> findBySessionIdAndUserId(Long sessionId, Long userId);
+
+  Optional<WaitlistEntry> findFirstBySessionIdOrderByIdAsc(Long sessionId);
+
+  boolean existsBySessionId(Long sessionId);
+
+  /**
+   * Queues an existing user who does not already participate, inserting nothing otherwise.
+   * Queueing twice is rejected by the (session_id, user_id) unique key.
+   */
+  @Modifying
+  @Transactional
+  @Query(value = "INSERT INTO WAITLIST (session_id, user_id, created_at) "
+      + "SELECT :sessionId, u.id, NOW() FROM USERS u WHERE u.id = :userId AND NOT EXISTS "
+      + "(SELECT 1 FROM PARTICIPATE p WHERE p.session_id = :sessionId AND p.user_id = :userId)",
+      nativeQuery = true)
+  int enqueue(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM WaitlistEntry w WHERE w.sessionId = :sessionId AND w.userId = :userId")
+  int remove(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM WaitlistEntry w WHERE w.sessionId = :sessionId")
+  int deleteBySessionId(@Param("sessionId") Long sessionId);
+
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM WaitlistEntry w WHERE w.userId = :userId")
+  int deleteByUserId(@Param("userId") Long userId);
+}
@@ -0,0 +1,82 @@
+package com.openclassrooms.starterjwt.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Accounts refused requests: every rejection increments the {@code security.rejections} counter of its reason,
+ * while logging is limited to one line per reason and interval, carrying the number of rejections it stands for.
+ * A flood of junk tokens therefore costs a counter increment per request instead of a log line and a stack trace.
+ */
+@Component
+public class RejectionRecorder {
+  public static final String UNAUTHORIZED = "unauthorized";
+  public static final String REVOKED_TOKEN = "jwt_revoked";
+  public static final String UNKNOWN_OPAQUE_TOKEN = "opaque_unknown";
+  public static final String AUTHENTICATION_ERROR = "authentication_error";
+  public static final String RATE_LIMITED_CLIENT = "rate_limited_client";
+  public static final String RATE_LIMITED_EMAIL = "rate_limited_email";
+
+  private static final Logger logger = LoggerFactory.getLogger(RejectionRecorder.class);
+
+  private final Map<String, ReasonStats> stats = new ConcurrentHashMap<>();
+
+  private final MeterRegistry meterRegistry;
+
+  private final long logIntervalMs;
+
+  public RejectionRecorder(MeterRegistry meterRegistry,
+                           @Value("${oc.app.securityLogIntervalMs:10000}") long logIntervalMs) {
+    this.meterRegistry = meterRegistry;
+    this.logIntervalMs = logIntervalMs;
+  }
+
+  public void record(String reason, String detail) {
+    ReasonStats reasonStats = stats.computeIfAbsent(reason, this::newReasonStats);
+    reasonStats.counter.increment();
+    reasonStats.unlogged.incrementAndGet();
+
+    long now = System.currentTimeMillis();
+    long nextLogAt = reasonStats.nextLogAt.get();
+    if (now < nextLogAt || !reasonStats.nextLogAt.compareAndSet(nextLogAt, now + logIntervalMs)) {
+      return;
+    }
+    logger.warn("Request rejected ({}), {} occurrence(s) since last report, last: {}",
+        reason, reasonStats.unlogged.getAndSet(0), detail);
+  }
+
+  public void record(String reason, Exception e) {
+    record(reason, e.getClass().getSimpleName() + ": " + e.getMessage());
+    logger.debug("Request rejected ({})", reason, e);
+  }
+
+  public double count(String reason) {
+    ReasonStats reasonStats = stats.get(reason);
+    return reasonStats != null ? reasonStats.counter.count() : 0;
+  }
+
+  private ReasonStats newReasonStats(String reason) {
+    return new ReasonStats(Counter.builder("security.rejections").tag("reason", reason).register(meterRegistry));
+  }
+
+  private static final class ReasonStats {
+    private final Counter counter;
+
+    private final AtomicLong unlogged = new AtomicLong();
+
+    private final AtomicLong nextLogAt = new AtomicLong();
+
+    private ReasonStats(Counter counter) {
+      this.counter = counter;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs the CPU-heavy hashing and verification of the delegate encoder on a dedicated, bounded pool,
+ * so that a login or registration storm cannot occupy every request thread.
+ * When the pool and its queue are full the call fails fast with a {@link ServiceUnavailableException} (HTTP 503).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+  private final PasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final Timer encodeTimer;
+
+  private final Timer matchesTimer;
+
+  private final Counter rejections;
+
+  /**
+   * @param threads pool size, 0 or less sizes the pool to half of the available processors
+   * @param queueCapacity number of hashing requests allowed to wait for a free thread
+   */
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+    int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    this.delegate = delegate;
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        new CustomizableThreadFactory("password-hashing-"),
+        new ThreadPoolExecutor.AbortPolicy());
+
+    this.encodeTimer = Timer.builder("password.hashing")
+        .tag("operation", "encode")
+        .register(meterRegistry);
+    this.matchesTimer = Timer.builder("password.hashing")
+        .tag("operation", "matches")
+        .register(meterRegistry);
+    this.rejections = Counter.builder("password.hashing.rejected")
+        .register(meterRegistry);
+    Gauge.builder("password.hashing.queue.size", executor, pool -> pool.getQueue().size())
+        .register(meterRegistry);
+    Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return execute(() -> delegate.encode(rawPassword), encodeTimer);
+  }
+
+  /**
+   * Queues the hashing without waiting for it, for background work such as re-hashing outdated passwords.
+   * The returned future fails with a {@link ServiceUnavailableException} when the pool is saturated.
+   */
+  public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+    try {
+      return CompletableFuture.supplyAsync(() -> encodeTimer.record(() -> delegate.encode(rawPassword)), executor);
+    } catch (RejectedExecutionException e) {
+      rejections.increment();
+      CompletableFuture<String> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(new ServiceUnavailableException());
+      return rejected;
+    }
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return execute(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  private <T> T execute(Callable<T> task, Timer timer) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timer.recordCallable(task));
+    } catch (RejectedExecutionException e) {
+      rejections.increment();
+      throw new ServiceUnavailableException();
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+}
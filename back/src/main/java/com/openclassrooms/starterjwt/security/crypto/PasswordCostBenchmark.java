@@ -0,0 +1,63 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Benchmark mode, enabled with {@code oc.app.passwordHashingBenchmark=true}: measures on the current hardware
+ * the median BCrypt hashing time of each cost level and logs it at startup, so that
+ * {@code oc.app.passwordHashingCost} can be chosen from a target login latency.
+ */
+@Component
+@ConditionalOnProperty(name = "oc.app.passwordHashingBenchmark", havingValue = "true")
+public class PasswordCostBenchmark implements ApplicationRunner {
+  private static final Logger logger = LoggerFactory.getLogger(PasswordCostBenchmark.class);
+
+  private static final String SAMPLE_PASSWORD = "test!1234";
+
+  private final int minCost;
+
+  private final int maxCost;
+
+  private final int iterations;
+
+  public PasswordCostBenchmark(@Value("${oc.app.passwordHashingBenchmarkMinCost:8}") int minCost,
+                               @Value("${oc.app.passwordHashingBenchmarkMaxCost:14}") int maxCost,
+                               @Value("${oc.app.passwordHashingBenchmarkIterations:5}") int iterations) {
+    this.minCost = minCost;
+    this.maxCost = maxCost;
+    this.iterations = iterations;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    measureMedianMillis().forEach((cost, medianMillis) ->
+        logger.info("Password hashing benchmark: cost {} takes {} ms per hash (median of {})", cost, medianMillis, iterations));
+  }
+
+  public Map<Integer, Double> measureMedianMillis() {
+    Map<Integer, Double> medians = new LinkedHashMap<>();
+    for (int cost = minCost; cost <= maxCost; cost++) {
+      BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+      long[] durations = new long[iterations];
+      for (int i = 0; i < iterations; i++) {
+        long start = System.nanoTime();
+        encoder.encode(SAMPLE_PASSWORD);
+        durations[i] = System.nanoTime() - start;
+      }
+      Arrays.sort(durations);
+      medians.put(cost, durations[iterations / 2] / 1_000_000d);
+    }
+    return medians;
+  }
+}
@@ -0,0 +1,85 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+
+/**
+ * Re-hashes, in the background, passwords whose stored hash is outdated (unprefixed or below the configured cost),
+ * using the raw password of a login that has just been verified.
+ * The new hash is written from a thread of its own, so a slow database never holds a slot of the hashing pool.
+ */
+@Service
+public class PasswordRehashService implements DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(PasswordRehashService.class);
+
+  private final BoundedPasswordEncoder passwordEncoder;
+
+  private final UserRepository userRepository;
+
+  private final UserDetailsServiceImpl userDetailsService;
+
+  private final Executor writeExecutor;
+
+  /**
+   * @param writeQueueCapacity hashes waiting to be written, beyond which they are dropped until a later login
+   */
+  public PasswordRehashService(BoundedPasswordEncoder passwordEncoder,
+                               UserRepository userRepository,
+                               UserDetailsServiceImpl userDetailsService,
+                               @Value("${oc.app.passwordRehashQueueCapacity:1000}") int writeQueueCapacity) {
+    this(passwordEncoder, userRepository, userDetailsService, new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(writeQueueCapacity),
+        new CustomizableThreadFactory("password-rehash-"),
+        new ThreadPoolExecutor.AbortPolicy()));
+  }
+
+  PasswordRehashService(BoundedPasswordEncoder passwordEncoder,
+                        UserRepository userRepository,
+                        UserDetailsServiceImpl userDetailsService,
+                        Executor writeExecutor) {
+    this.passwordEncoder = passwordEncoder;
+    this.userRepository = userRepository;
+    this.userDetailsService = userDetailsService;
+    this.writeExecutor = writeExecutor;
+  }
+
+  public void rehashIfOutdated(UserDetailsImpl userDetails, String rawPassword) {
+    String outdatedHash = userDetails.getPassword();
+    if (outdatedHash == null || !passwordEncoder.upgradeEncoding(outdatedHash)) {
+      return;
+    }
+
+    String username = userDetails.getUsername();
+    passwordEncoder.encodeAsync(rawPassword)
+        .thenAcceptAsync(upgradedHash -> {
+          userRepository.updatePassword(username, outdatedHash, upgradedHash);
+          userDetailsService.evictUserDetails(username);
+        }, writeExecutor)
+        .exceptionally(e -> {
+          // The hash is left as is and will be upgraded on a later login
+          logger.warn("Cannot re-hash the password of {}: {}", username, e.getMessage());
+          return null;
+        });
+  }
+
+  @Override
+  public void destroy() {
+    if (writeExecutor instanceof ExecutorService) {
+      ((ExecutorService) writeExecutor).shutdown();
+    }
+  }
+}
@@ -1,43 +1,85 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.openclassrooms.starterjwt.security.RejectionRecorder;
 
+/**
+ * Answers unauthenticated requests with a 401 JSON body assembled from pre-encoded fragments:
+ * only the request path is escaped per call, the exception messages being encoded once and kept.
+ */
 @Component
 public class AuthEntryPointJwt implements AuthenticationEntryPoint {
+  private static final byte[] PATH_PREFIX = "{\"path\":\"".getBytes(StandardCharsets.UTF_8);
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthEntryPointJwt.class);
+  private static final byte[] MESSAGE_PREFIX =
+      "\",\"error\":\"Unauthorized\",\"message\":".getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] STATUS_SUFFIX = (",\"status\":" + HttpServletResponse.SC_UNAUTHORIZED + "}")
+      .getBytes(StandardCharsets.UTF_8);
+
+  private static final byte[] NULL_MESSAGE = "null".getBytes(StandardCharsets.UTF_8);
+
+  private static final int MAX_ENCODED_MESSAGES = 64;
+
+  private final Map<String, byte[]> encodedMessages = new ConcurrentHashMap<>();
+
+  @Autowired
+  private RejectionRecorder rejectionRecorder;
 
   @Override
   public void commence(HttpServletRequest request, HttpServletResponse response, AuthenticationException authException)
       throws IOException, ServletException {
-    logger.error("Unauthorized error: {}", authException.getMessage());
+    String message = authException.getMessage();
+    rejectionRecorder.record(RejectionRecorder.UNAUTHORIZED, message);
 
     response.setContentType(MediaType.APPLICATION_JSON_VALUE);
     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
 
-    final Map<String, Object> body = new HashMap<>();
-    body.put("status", HttpServletResponse.SC_UNAUTHORIZED);
-    body.put("error", "Unauthorized");
-    body.put("message", authException.getMessage());
-    body.put("path", request.getServletPath());
+    OutputStream out = response.getOutputStream();
+    out.write(PATH_PREFIX);
+    out.write(JsonStringEncoder.getInstance().quoteAsUTF8(request.getServletPath()));
+    out.write(MESSAGE_PREFIX);
+    out.write(encodeMessage(message));
+    out.write(STATUS_SUFFIX);
+  }
+
+  private byte[] encodeMessage(String message) {
+    if (message == null) {
+      return NULL_MESSAGE;
+    }
 
-    final ObjectMapper mapper = new ObjectMapper();
-    mapper.writeValue(response.getOutputStream(), body);
+    byte[] encoded = encodedMessages.get(message);
+    if (encoded == null) {
+      encoded = quote(message);
+      if (encodedMessages.size() < MAX_ENCODED_MESSAGES) {
+        encodedMessages.put(message, encoded);
+      }
+    }
+    return encoded;
   }
 
+  private static byte[] quote(String value) {
+    byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(value);
+    byte[] quoted = new byte[escaped.length + 2];
+    quoted[0] = '"';
+    System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+    quoted[quoted.length - 1] = '"';
+    return quoted;
+  }
 }
@@ -1,15 +1,15 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import java.io.IOException;
+import java.time.Clock;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,42 +17,139 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.cache.BoundedExpiringCache;
+import com.openclassrooms.starterjwt.security.RejectionRecorder;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
+import io.jsonwebtoken.Claims;
+
 public class AuthTokenFilter extends OncePerRequestFilter {
+  private static final int MAX_TRACKED_PRINCIPALS = 10_000;
+
   @Autowired
   private JwtUtils jwtUtils;
 
+  @Autowired
+  private JwtTokenCache jwtTokenCache;
+
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
-  private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
+  @Autowired
+  private TokenRevocationService tokenRevocationService;
+
+  @Autowired
+  private OpaqueTokenService opaqueTokenService;
+
+  @Autowired
+  private RejectionRecorder rejectionRecorder;
+
+  /**
+   * When enabled, the principal is rebuilt from the signed JWT claims instead of being loaded from the database,
+   * which is only queried once per revalidation interval and user to catch deleted accounts.
+   */
+  @Value("${oc.app.jwtClaimsPrincipal:false}")
+  private boolean claimsPrincipal;
+
+  @Value("${oc.app.jwtRevalidationMs:300000}")
+  private long revalidationMs;
+
+  /**
+   * Usernames revalidated against the database, each entry expiring once the revalidation interval has elapsed.
+   */
+  private final BoundedExpiringCache<String, Boolean> revalidatedPrincipals =
+      new BoundedExpiringCache<>(MAX_TRACKED_PRINCIPALS, Clock.systemUTC());
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-        UsernamePasswordAuthenticationToken authentication =
-            new UsernamePasswordAuthenticationToken(
-                userDetails,
-                null,
-                userDetails.getAuthorities());
-        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+      if (jwt != null && opaqueTokenService.isEnabled()) {
+        authenticateOpaqueToken(jwt, request);
+      } else if (jwt != null) {
+        authenticateJwt(jwt, request);
       }
     } catch (Exception e) {
-      logger.error("Cannot set user authentication: {}", e);
+      rejectionRecorder.record(RejectionRecorder.AUTHENTICATION_ERROR, e);
     }
 
     filterChain.doFilter(request, response);
   }
 
+  private void authenticateJwt(String jwt, HttpServletRequest request) {
+    Claims claims = verifyJwt(jwt, request);
+    if (claims == null) {
+      return;
+    }
+    if (tokenRevocationService.isRevoked(claims)) {
+      rejectionRecorder.record(RejectionRecorder.REVOKED_TOKEN, request.getServletPath());
+      return;
+    }
+
+    setAuthentication(loadUserDetails(claims), claims, request);
+  }
+
+  private void authenticateOpaqueToken(String token, HttpServletRequest request) {
+    UserDetails userDetails = opaqueTokenService.resolve(token);
+    if (userDetails == null) {
+      rejectionRecorder.record(RejectionRecorder.UNKNOWN_OPAQUE_TOKEN, request.getServletPath());
+      return;
+    }
+
+    setAuthentication(userDetails, token, request);
+  }
+
+  private void setAuthentication(UserDetails userDetails, Object credentials, HttpServletRequest request) {
+    UsernamePasswordAuthenticationToken authentication =
+        new UsernamePasswordAuthenticationToken(
+            userDetails,
+            credentials,
+            userDetails.getAuthorities());
+    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+    SecurityContextHolder.getContext().setAuthentication(authentication);
+  }
+
+  private Claims verifyJwt(String jwt, HttpServletRequest request) {
+    Claims claims = jwtTokenCache.get(jwt);
+    if (claims != null) {
+      return claims;
+    }
+
+    JwtVerification verification = jwtUtils.verifyJwtToken(jwt);
+    if (!verification.isValid()) {
+      rejectionRecorder.record(verification.getFailure().getReason(), request.getServletPath());
+      return null;
+    }
+
+    jwtTokenCache.put(jwt, verification.getClaims());
+    return verification.getClaims();
+  }
+
+  private UserDetails loadUserDetails(Claims claims) {
+    if (!claimsPrincipal) {
+      return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+
+    UserDetails claimsUserDetails = jwtUtils.getUserDetailsFromClaims(claims);
+    if (claimsUserDetails == null) {
+      // Token issued before the principal claims were embedded
+      return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+
+    String username = claimsUserDetails.getUsername();
+    if (revalidatedPrincipals.get(username) != null) {
+      return claimsUserDetails;
+    }
+
+    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    revalidatedPrincipals.put(username, Boolean.TRUE, System.currentTimeMillis() + revalidationMs);
+
+    return userDetails;
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.openclassrooms.starterjwt.cache.BoundedExpiringCache;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Claims of already verified tokens, keyed by the SHA-256 digest of the token and kept until the token expires,
+ * so that a token sent on every request only has its HMAC checked once.
+ * Only tokens signed by this server can enter the cache and its size is capped by {@code oc.app.jwtCacheMaxEntries}.
+ */
+@Component
+public class JwtTokenCache {
+  static final int MAX_TOKEN_LENGTH = 4096;
+
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  });
+
+  private final BoundedExpiringCache<String, Claims> cache;
+
+  public JwtTokenCache(@Value("${oc.app.jwtCacheMaxEntries:10000}") int maxEntries, MeterRegistry meterRegistry) {
+    this.cache = new BoundedExpiringCache<>(maxEntries, Clock.systemUTC());
+    this.cache.bindTo(meterRegistry, "jwt.verified-tokens");
+  }
+
+  public Claims get(String token) {
+    if (token.length() > MAX_TOKEN_LENGTH) {
+      return null;
+    }
+    return cache.get(digest(token));
+  }
+
+  public void put(String token, Claims claims) {
+    Date expiration = claims.getExpiration();
+    if (expiration == null || token.length() > MAX_TOKEN_LENGTH) {
+      return;
+    }
+    cache.put(digest(token), claims, expiration.getTime());
+  }
+
+  public void invalidate(String token) {
+    cache.invalidate(digest(token));
+  }
+
+  BoundedExpiringCache<String, Claims> getCache() {
+    return cache;
+  }
+
+  private static String digest(String token) {
+    MessageDigest messageDigest = SHA_256.get();
+    messageDigest.reset();
+    return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+  }
+}
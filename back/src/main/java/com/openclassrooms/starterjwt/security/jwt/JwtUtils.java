@@ -1,6 +1,11 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,49 +16,104 @@ import org.springframework.stereotype.Component;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+  static final String ID_CLAIM = "id";
+  static final String FIRST_NAME_CLAIM = "firstName";
+  static final String LAST_NAME_CLAIM = "lastName";
+  static final String ADMIN_CLAIM = "admin";
+
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
 
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  private Key signingKey;
+
+  // The parser is only configured here and never mutated afterwards, so it is safe to share between request threads
+  private JwtParser jwtParser;
+
+  @PostConstruct
+  public void init() {
+    signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+    jwtParser = Jwts.parser().setSigningKey(signingKey);
+  }
+
   public String generateJwtToken(Authentication authentication) {
 
     UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
     return Jwts.builder()
+        .setId(UUID.randomUUID().toString())
         .setSubject((userPrincipal.getUsername()))
+        .claim(ID_CLAIM, userPrincipal.getId())
+        .claim(FIRST_NAME_CLAIM, userPrincipal.getFirstName())
+        .claim(LAST_NAME_CLAIM, userPrincipal.getLastName())
+        .claim(ADMIN_CLAIM, Boolean.TRUE.equals(userPrincipal.getAdmin()))
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
+        .signWith(SignatureAlgorithm.HS512, signingKey)
         .compact();
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    return jwtParser.parseClaimsJws(token).getBody().getSubject();
   }
 
-  public boolean validateJwtToken(String authToken) {
+  /**
+   * Rebuilds the authenticated principal from the signed claims of the token, without any database access.
+   * Returns null when the token was issued before the principal claims were embedded.
+   */
+  public UserDetailsImpl getUserDetailsFromJwtToken(String token) {
+    return getUserDetailsFromClaims(jwtParser.parseClaimsJws(token).getBody());
+  }
+
+  public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+    Number id = claims.get(ID_CLAIM, Number.class);
+    if (id == null) {
+      return null;
+    }
+
+    return UserDetailsImpl
+            .builder()
+            .id(id.longValue())
+            .username(claims.getSubject())
+            .firstName(claims.get(FIRST_NAME_CLAIM, String.class))
+            .lastName(claims.get(LAST_NAME_CLAIM, String.class))
+            .admin(Boolean.TRUE.equals(claims.get(ADMIN_CLAIM, Boolean.class)))
+            .build();
+  }
+
+  /**
+   * Parses the token and checks its signature exactly once, returning either the claims or the failure reason.
+   */
+  public JwtVerification verifyJwtToken(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      return JwtVerification.valid(jwtParser.parseClaimsJws(authToken).getBody());
     } catch (SignatureException e) {
-      logger.error("Invalid JWT signature: {}", e.getMessage());
+      logger.debug("Invalid JWT signature: {}", e.getMessage());
+      return JwtVerification.failed(JwtVerification.Failure.INVALID_SIGNATURE);
     } catch (MalformedJwtException e) {
-      logger.error("Invalid JWT token: {}", e.getMessage());
+      logger.debug("Invalid JWT token: {}", e.getMessage());
+      return JwtVerification.failed(JwtVerification.Failure.MALFORMED);
     } catch (ExpiredJwtException e) {
-      logger.error("JWT token is expired: {}", e.getMessage());
+      logger.debug("JWT token is expired: {}", e.getMessage());
+      return JwtVerification.failed(JwtVerification.Failure.EXPIRED);
     } catch (UnsupportedJwtException e) {
-      logger.error("JWT token is unsupported: {}", e.getMessage());
+      logger.debug("JWT token is unsupported: {}", e.getMessage());
+      return JwtVerification.failed(JwtVerification.Failure.UNSUPPORTED);
     } catch (IllegalArgumentException e) {
-      logger.error("JWT claims string is empty: {}", e.getMessage());
+      logger.debug("JWT claims string is empty: {}", e.getMessage());
+      return JwtVerification.failed(JwtVerification.Failure.EMPTY);
     }
+  }
 
-    return false;
+  public boolean validateJwtToken(String authToken) {
+    return verifyJwtToken(authToken).isValid();
   }
 }
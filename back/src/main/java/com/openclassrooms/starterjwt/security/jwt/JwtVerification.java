@@ -0,0 +1,48 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Locale;
+
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+
+/**
+ * Outcome of a single JWT parse: the verified claims on success, or the reason why the token was rejected.
+ */
+@Getter
+public final class JwtVerification {
+  public enum Failure {
+    INVALID_SIGNATURE,
+    MALFORMED,
+    EXPIRED,
+    UNSUPPORTED,
+    EMPTY;
+
+    private final String reason = "jwt_" + name().toLowerCase(Locale.ROOT);
+
+    /** Rejection reason reported for this failure. */
+    public String getReason() {
+      return reason;
+    }
+  }
+
+  private final Claims claims;
+
+  private final Failure failure;
+
+  private JwtVerification(Claims claims, Failure failure) {
+    this.claims = claims;
+    this.failure = failure;
+  }
+
+  public static JwtVerification valid(Claims claims) {
+    return new JwtVerification(claims, null);
+  }
+
+  public static JwtVerification failed(Failure failure) {
+    return new JwtVerification(null, failure);
+  }
+
+  public boolean isValid() {
+    return failure == null;
+  }
+}
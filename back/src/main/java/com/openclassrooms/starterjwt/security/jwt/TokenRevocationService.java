@@ -0,0 +1,130 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.cache.BloomFilter;
+import com.openclassrooms.starterjwt.cache.BoundedExpiringCache;
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Deny list of revoked JWT ids. The table is only queried when the in-memory Bloom filter reports a possible match,
+ * so checking a token that was never revoked costs a few bit lookups and no I/O.
+ * The filter is rebuilt from the table at startup and after each pruning of the expired entries,
+ * which also picks up revocations written by other instances.
+ */
+@Service
+public class TokenRevocationService {
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  private static final int MAX_CONFIRMED_REVOCATIONS = 10_000;
+
+  private final RevokedTokenRepository revokedTokenRepository;
+
+  private final long expectedRevocations;
+
+  private final double falsePositiveRate;
+
+  private final BoundedExpiringCache<String, Boolean> confirmedRevocations =
+      new BoundedExpiringCache<>(MAX_CONFIRMED_REVOCATIONS, Clock.systemUTC());
+
+  private final Object writeLock = new Object();
+
+  private volatile BloomFilter revokedJtis;
+
+  public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                @Value("${oc.app.revokedTokensExpectedCount:100000}") long expectedRevocations,
+                                @Value("${oc.app.revokedTokensFalsePositiveRate:0.01}") double falsePositiveRate) {
+    this.revokedTokenRepository = revokedTokenRepository;
+    this.expectedRevocations = expectedRevocations;
+    this.falsePositiveRate = falsePositiveRate;
+    this.revokedJtis = new BloomFilter(expectedRevocations, falsePositiveRate);
+  }
+
+  /**
+   * Revokes the token until its expiration. Tokens issued without an id cannot be revoked and are ignored.
+   *
+   * @return whether the token was revoked
+   */
+  public boolean revoke(Claims claims) {
+    String jti = claims.getId();
+    if (jti == null || claims.getExpiration() == null) {
+      return false;
+    }
+
+    synchronized (writeLock) {
+      revokedTokenRepository.save(new RevokedToken(jti, toLocalDateTime(claims.getExpiration().getTime())));
+      revokedJtis.put(jti);
+    }
+    confirmedRevocations.put(jti, Boolean.TRUE, claims.getExpiration().getTime());
+    return true;
+  }
+
+  /**
+   * Revokes the token the current request was authenticated with, whose claims are the authentication credentials.
+   *
+   * @return whether a token was revoked
+   */
+  public boolean revokeCurrentToken() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !(authentication.getCredentials() instanceof Claims)) {
+      return false;
+    }
+    return revoke((Claims) authentication.getCredentials());
+  }
+
+  public boolean isRevoked(Claims claims) {
+    String jti = claims.getId();
+    if (jti == null || !revokedJtis.mightContain(jti)) {
+      return false;
+    }
+
+    if (confirmedRevocations.get(jti) != null) {
+      return true;
+    }
+
+    boolean revoked = revokedTokenRepository.existsById(jti);
+    if (revoked && claims.getExpiration() != null) {
+      confirmedRevocations.put(jti, Boolean.TRUE, claims.getExpiration().getTime());
+    }
+    return revoked;
+  }
+
+  @PostConstruct
+  public void rebuild() {
+    synchronized (writeLock) {
+      List<String> activeJtis = revokedTokenRepository.findActiveJtis(LocalDateTime.now());
+      BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, activeJtis.size() * 2L), falsePositiveRate);
+      activeJtis.forEach(filter::put);
+      revokedJtis = filter;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.revokedTokensPruneMs:3600000}",
+      initialDelayString = "${oc.app.revokedTokensPruneMs:3600000}")
+  public void pruneExpired() {
+    int pruned = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    rebuild();
+    logger.info("Pruned {} expired revoked token(s)", pruned);
+  }
+
+  private static LocalDateTime toLocalDateTime(long epochMillis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+  }
+}
@@ -0,0 +1,211 @@
+package com.openclassrooms.starterjwt.security.opaque;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.models.AuthToken;
+import com.openclassrooms.starterjwt.repository.AuthTokenRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Alternative to JWTs, enabled with {@code oc.app.authTokenMode=opaque}: login issues a random 43 characters token
+ * which AuthTokenFilter resolves with a hash lookup in the {@link OpaqueTokenStore} instead of an HMAC verification.
+ * Tokens are persisted hashed in AUTH_TOKENS and reloaded at startup, so a restart keeps the sessions. The store is
+ * capped by {@code oc.app.opaqueTokensMaxEntries}; once it had to drop active tokens, a miss is looked up in the table.
+ */
+@Service
+public class OpaqueTokenService {
+  public static final String OPAQUE_MODE = "opaque";
+
+  static final int MAX_TOKEN_LENGTH = 128;
+
+  private static final int TOKEN_BYTES = 32;
+
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  });
+
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  private final AuthTokenRepository authTokenRepository;
+
+  private final UserDetailsServiceImpl userDetailsService;
+
+  private final boolean enabled;
+
+  private final long tokenTtlMs;
+
+  private final OpaqueTokenStore store;
+
+  public OpaqueTokenService(AuthTokenRepository authTokenRepository,
+                            UserDetailsServiceImpl userDetailsService,
+                            @Value("${oc.app.authTokenMode:jwt}") String authTokenMode,
+                            @Value("${oc.app.jwtExpirationMs}") long tokenTtlMs,
+                            @Value("${oc.app.opaqueTokenStripes:64}") int stripes,
+                            @Value("${oc.app.opaqueTokensMaxEntries:100000}") int maxEntries,
+                            MeterRegistry meterRegistry) {
+    this.authTokenRepository = authTokenRepository;
+    this.userDetailsService = userDetailsService;
+    this.enabled = OPAQUE_MODE.equalsIgnoreCase(authTokenMode);
+    this.tokenTtlMs = tokenTtlMs;
+    this.store = new OpaqueTokenStore(stripes, maxEntries);
+    Gauge.builder("auth.opaque-tokens.size", store, OpaqueTokenStore::size).register(meterRegistry);
+    FunctionCounter.builder("auth.opaque-tokens.evictions", store, OpaqueTokenStore::getEvictions)
+        .register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public String issue(UserDetails principal) {
+    byte[] randomBytes = new byte[TOKEN_BYTES];
+    secureRandom.nextBytes(randomBytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+    String tokenHash = digest(token);
+    long expiresAt = System.currentTimeMillis() + tokenTtlMs;
+    authTokenRepository.save(new AuthToken(tokenHash, principal.getUsername(), toLocalDateTime(expiresAt)));
+    store.put(tokenHash, new OpaqueTokenStore.Entry(principal.getUsername(), expiresAt, principal),
+        System.currentTimeMillis());
+    return token;
+  }
+
+  /**
+   * @return the principal of an active token, or {@code null} if the token is unknown, expired or revoked
+   */
+  public UserDetails resolve(String token) {
+    if (token.length() > MAX_TOKEN_LENGTH) {
+      return null;
+    }
+
+    String tokenHash = digest(token);
+    long now = System.currentTimeMillis();
+    OpaqueTokenStore.Entry entry = store.get(tokenHash, now);
+    if (entry == null && store.getEvictions() > 0) {
+      entry = reload(tokenHash, now);
+    }
+    if (entry == null) {
+      return null;
+    }
+
+    UserDetails principal = entry.getPrincipal();
+    if (principal == null) {
+      principal = userDetailsService.loadUserByUsername(entry.getUsername());
+      entry.setPrincipal(principal);
+    }
+    return principal;
+  }
+
+  /**
+   * Idempotent: a token already revoked, by a concurrent logout or another instance, is left as is.
+   *
+   * @return whether the token was still persisted
+   */
+  public boolean revoke(String token) {
+    String tokenHash = digest(token);
+    store.remove(tokenHash);
+    return authTokenRepository.deleteByTokenHash(tokenHash) > 0;
+  }
+
+  /**
+   * Revokes the opaque token the current request was authenticated with, which is the authentication credentials.
+   *
+   * @return whether a token was revoked
+   */
+  public boolean revokeCurrentToken() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !(authentication.getCredentials() instanceof String)) {
+      return false;
+    }
+    revoke((String) authentication.getCredentials());
+    return true;
+  }
+
+  /**
+   * Revokes every token of the user, for instance when the account is deleted.
+   */
+  public void revokeAll(String username) {
+    store.removeIf(entry -> entry.getUsername().equals(username));
+    authTokenRepository.deleteByUsername(username);
+  }
+
+  @PostConstruct
+  public void load() {
+    if (!enabled) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    for (AuthToken authToken : authTokenRepository.findActive(LocalDateTime.now())) {
+      store.put(authToken.getTokenHash(), toEntry(authToken), now);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.opaqueTokensPruneMs:600000}",
+      initialDelayString = "${oc.app.opaqueTokensPruneMs:600000}")
+  public void pruneExpired() {
+    if (!enabled) {
+      return;
+    }
+    store.sweepExpired(System.currentTimeMillis());
+    authTokenRepository.deleteExpired(LocalDateTime.now());
+  }
+
+  /**
+   * Brings back a token the capped store had to drop, unless it is expired or revoked meanwhile.
+   */
+  private OpaqueTokenStore.Entry reload(String tokenHash, long now) {
+    AuthToken authToken = authTokenRepository.findById(tokenHash).orElse(null);
+    if (authToken == null) {
+      return null;
+    }
+    OpaqueTokenStore.Entry entry = toEntry(authToken);
+    if (entry.getExpiresAt() <= now) {
+      return null;
+    }
+    store.put(tokenHash, entry, now);
+    return entry;
+  }
+
+  private static OpaqueTokenStore.Entry toEntry(AuthToken authToken) {
+    long expiresAt = authToken.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    return new OpaqueTokenStore.Entry(authToken.getUsername(), expiresAt, null);
+  }
+
+  OpaqueTokenStore getStore() {
+    return store;
+  }
+
+  private static String digest(String token) {
+    MessageDigest messageDigest = SHA_256.get();
+    messageDigest.reset();
+    return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static LocalDateTime toLocalDateTime(long epochMillis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+  }
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.starterjwt.security.opaque;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * In-memory index of the active opaque tokens, keyed by token hash and split into independent stripes,
+ * so that writers of different stripes never contend and expired entries are swept one stripe at a time.
+ * Each stripe holds its share of {@code maxEntries}: a full stripe first drops its expired entries, then arbitrary
+ * ones down to its low-water mark, which the owner must then be able to reload from elsewhere.
+ */
+public class OpaqueTokenStore {
+  private static final double LOW_WATER_MARK = 0.9;
+
+  private final Map<String, Entry>[] stripes;
+
+  private final int stripeMask;
+
+  private final int stripeCapacity;
+
+  private final LongAdder evictions = new LongAdder();
+
+  @SuppressWarnings("unchecked")
+  public OpaqueTokenStore(int stripeCount, int maxEntries) {
+    int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+    this.stripes = new Map[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ConcurrentHashMap<>();
+    }
+    this.stripeMask = size - 1;
+    this.stripeCapacity = Math.max(1, (maxEntries + size - 1) / size);
+  }
+
+  public Entry get(String tokenHash, long now) {
+    Map<String, Entry> stripe = stripeOf(tokenHash);
+    Entry entry = stripe.get(tokenHash);
+    if (entry != null && entry.isExpired(now)) {
+      stripe.remove(tokenHash, entry);
+      return null;
+    }
+    return entry;
+  }
+
+  public void put(String tokenHash, Entry entry, long now) {
+    Map<String, Entry> stripe = stripeOf(tokenHash);
+    if (stripe.size() >= stripeCapacity && !stripe.containsKey(tokenHash)) {
+      makeRoom(stripe, now);
+    }
+    stripe.put(tokenHash, entry);
+  }
+
+  public Entry remove(String tokenHash) {
+    return stripeOf(tokenHash).remove(tokenHash);
+  }
+
+  public void removeIf(Predicate<Entry> predicate) {
+    for (Map<String, Entry> stripe : stripes) {
+      stripe.values().removeIf(predicate);
+    }
+  }
+
+  public void sweepExpired(long now) {
+    removeIf(entry -> entry.isExpired(now));
+  }
+
+  public int size() {
+    int size = 0;
+    for (Map<String, Entry> stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  /**
+   * Active entries dropped so far to keep the stripes under their capacity.
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  int getStripeCount() {
+    return stripes.length;
+  }
+
+  private Map<String, Entry> stripeOf(String tokenHash) {
+    int hash = tokenHash.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+  }
+
+  private void makeRoom(Map<String, Entry> stripe, long now) {
+    synchronized (stripe) {
+      if (stripe.size() < stripeCapacity) {
+        return;
+      }
+
+      stripe.values().removeIf(entry -> entry.isExpired(now));
+
+      int lowWaterMark = (int) (stripeCapacity * LOW_WATER_MARK);
+      Iterator<Entry> iterator = stripe.values().iterator();
+      while (stripe.size() > lowWaterMark && iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Active token: its owner, its expiration, and the principal once resolved.
+   * Entries reloaded from the table at startup get their principal on first use.
+   */
+  public static final class Entry {
+    private final String username;
+
+    private final long expiresAt;
+
+    private volatile UserDetails principal;
+
+    public Entry(String username, long expiresAt, UserDetails principal) {
+      this.username = username;
+      this.expiresAt = expiresAt;
+      this.principal = principal;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public long getExpiresAt() {
+      return expiresAt;
+    }
+
+    public UserDetails getPrincipal() {
+      return principal;
+    }
+
+    public void setPrincipal(UserDetails principal) {
+      this.principal = principal;
+    }
+
+    boolean isExpired(long now) {
+      return now >= expiresAt;
+    }
+  }
+}
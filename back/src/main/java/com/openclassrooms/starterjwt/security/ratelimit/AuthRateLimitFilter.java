@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Refuses {@code /api/auth/**} calls of clients over their rate with a pre-encoded 429,
+ * before the request body is read or the AuthenticationManager is involved.
+ */
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+  private static final byte[] TOO_MANY_REQUESTS_BODY =
+      "{\"message\":\"Error: Too many requests!\"}".getBytes(StandardCharsets.UTF_8);
+
+  @Autowired
+  private AuthRateLimiter authRateLimiter;
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getServletPath().startsWith("/api/auth/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (!authRateLimiter.tryAcquireClient(request.getRemoteAddr())) {
+      response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+      response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+      response.setContentLength(TOO_MANY_REQUESTS_BODY.length);
+      response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+      return;
+    }
+
+    filterChain.doFilter(request, response);
+  }
+}
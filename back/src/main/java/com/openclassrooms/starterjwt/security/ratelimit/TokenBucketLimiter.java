@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token buckets keyed by an arbitrary client key.
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (generic cell rate algorithm),
+ * which behaves like a bucket of {@code capacity} tokens refilled at {@code tokensPerMinute}.
+ * Buckets left untouched for {@code idleEvictionMs} are evicted, and once {@code maxBuckets} keys are tracked
+ * a new key makes room by evicting the buckets closest to full, so memory stays bounded whatever the number of
+ * clients while every key still gets its own bucket: flooding the limiter with new keys can at worst refill the
+ * buckets it evicts, never lock a legitimate client out.
+ */
+public class TokenBucketLimiter {
+  private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+  private static final double LOW_WATER_MARK = 0.9;
+
+  private final Object evictionLock = new Object();
+
+  private final AtomicLong lastSweep;
+
+  private final long emissionIntervalMs;
+
+  private final long burstToleranceMs;
+
+  private final long idleEvictionMs;
+
+  private final int maxBuckets;
+
+  private final Clock clock;
+
+  public TokenBucketLimiter(int capacity, int tokensPerMinute, long idleEvictionMs, int maxBuckets, Clock clock) {
+    this.emissionIntervalMs = Math.max(1, 60_000L / tokensPerMinute);
+    this.burstToleranceMs = emissionIntervalMs * capacity;
+    this.idleEvictionMs = idleEvictionMs;
+    this.maxBuckets = maxBuckets;
+    this.clock = clock;
+    this.lastSweep = new AtomicLong(clock.millis());
+  }
+
+  public boolean tryAcquire(String key) {
+    long now = clock.millis();
+    sweepIdleBuckets(now);
+
+    AtomicLong bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= maxBuckets) {
+        makeRoom(now);
+      }
+      bucket = buckets.computeIfAbsent(key, newKey -> new AtomicLong(now));
+    }
+
+    while (true) {
+      long theoreticalArrivalTime = bucket.get();
+      long nextArrivalTime = Math.max(theoreticalArrivalTime, now) + emissionIntervalMs;
+      if (nextArrivalTime - now > burstToleranceMs) {
+        return false;
+      }
+      if (bucket.compareAndSet(theoreticalArrivalTime, nextArrivalTime)) {
+        return true;
+      }
+    }
+  }
+
+  public int size() {
+    return buckets.size();
+  }
+
+  private void sweepIdleBuckets(long now) {
+    long previousSweep = lastSweep.get();
+    if (now - previousSweep < idleEvictionMs || !lastSweep.compareAndSet(previousSweep, now)) {
+      return;
+    }
+    // A bucket whose arrival time is far behind the clock is full again, forgetting it changes nothing
+    buckets.values().removeIf(bucket -> now - bucket.get() >= idleEvictionMs);
+  }
+
+  /**
+   * Evicts the buckets already refilled, then the ones with the earliest arrival times until the map is back under
+   * its low-water mark, so that the next {@code maxBuckets / 10} new keys insert without scanning it again.
+   */
+  private void makeRoom(long now) {
+    synchronized (evictionLock) {
+      if (buckets.size() < maxBuckets) {
+        return;
+      }
+      buckets.values().removeIf(bucket -> bucket.get() <= now);
+
+      int lowWaterMark = (int) (maxBuckets * LOW_WATER_MARK);
+      int excess = buckets.size() - lowWaterMark;
+      if (excess <= 0) {
+        return;
+      }
+      long[] arrivalTimes = buckets.values().stream().mapToLong(AtomicLong::get).toArray();
+      Arrays.sort(arrivalTimes);
+      long cutoff = arrivalTimes[Math.min(excess, arrivalTimes.length) - 1];
+      buckets.values().removeIf(bucket -> bucket.get() <= cutoff);
+    }
+  }
+}
@@ -1,36 +1,75 @@
 package com.openclassrooms.starterjwt.security.services;
 
+import java.time.Clock;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.openclassrooms.starterjwt.cache.BoundedExpiringCache;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
   UserRepository userRepository;
 
-  UserDetailsServiceImpl(UserRepository userRepository) {
+  private final BoundedExpiringCache<String, UserDetailsImpl> userDetailsCache;
+
+  private final long userDetailsCacheTtlMs;
+
+  public UserDetailsServiceImpl(UserRepository userRepository,
+                                @Value("${oc.app.userDetailsCacheMaxEntries:10000}") int userDetailsCacheMaxEntries,
+                                @Value("${oc.app.userDetailsCacheTtlMs:300000}") long userDetailsCacheTtlMs,
+                                MeterRegistry meterRegistry) {
     this.userRepository = userRepository;
+    this.userDetailsCacheTtlMs = userDetailsCacheTtlMs;
+    this.userDetailsCache = new BoundedExpiringCache<>(userDetailsCacheMaxEntries, Clock.systemUTC());
+    this.userDetailsCache.bindTo(meterRegistry, "user-details");
   }
 
   @Override
   @Transactional
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    UserDetailsImpl cachedUserDetails = userDetailsCache.get(username);
+    if (cachedUserDetails != null) {
+      return cachedUserDetails;
+    }
+
     User user = userRepository.findByEmail(username)
         .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
 
-    return UserDetailsImpl
+    UserDetailsImpl userDetails = UserDetailsImpl
             .builder()
             .id(user.getId())
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
             .password(user.getPassword())
             .build();
+
+    userDetailsCache.put(username, userDetails, System.currentTimeMillis() + userDetailsCacheTtlMs);
+    return userDetails;
   }
 
+  /**
+   * Drops the cached details of a user whose account has changed, so the next load reads the database again.
+   */
+  public void evictUserDetails(String username) {
+    userDetailsCache.invalidate(username);
+  }
+
+  public void evictUserDetails(Long userId) {
+    userDetailsCache.invalidateIf(userDetails -> userId.equals(userDetails.getId()));
+  }
+
+  BoundedExpiringCache<String, UserDetailsImpl> getUserDetailsCache() {
+    return userDetailsCache;
+  }
 }
@@ -0,0 +1,425 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.exception.SessionFullException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * In-process booking engine: every booking of a session goes through one single-writer lane, chosen by striping on
+ * the session id. The lane decides on seats from its in-memory state of the session, then writes the accepted
+ * bookings of its queue in one transaction, and acknowledges each caller once that batch is committed.
+ * <p>
+ * Each batch still goes through the conditional seat update and the PARTICIPATE primary key, so a state made stale
+ * by another writer (an update of the session, another instance) cannot oversell: the batch is then rolled back and
+ * its bookings are replayed one by one through {@link SeatBookingService}. Bookings of unknown users are failed
+ * beforehand with one id query for the whole batch, so they never roll the others back. Seats freed by the cancellations of a
+ * batch go to the head of the waitlist within the batch transaction, as with a single cancellation.
+ */
+@Component
+@Log4j2
+public class BookingSequencer implements DisposableBean {
+    private static final String INSERT_PARTICIPANT_SQL = "INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)";
+
+    private static final String DELETE_PARTICIPANT_SQL = "DELETE FROM PARTICIPATE WHERE session_id = ? AND user_id = ?";
+
+    private static final String UPDATE_SEATS_SQL = "UPDATE SESSIONS SET seats_taken = seats_taken + ? "
+            + "WHERE id = ? AND (capacity IS NULL OR seats_taken + ? <= capacity) AND seats_taken + ? >= 0";
+
+    private final SessionRepository sessionRepository;
+
+    private final UserRepository userRepository;
+
+    private final SeatBookingService seatBookingService;
+
+    private final WaitlistService waitlistService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final int maxSessionsPerLane;
+
+    private final long timeoutMs;
+
+    private final Lane[] lanes;
+
+    private final DistributionSummary batchSizes;
+
+    public BookingSequencer(SessionRepository sessionRepository,
+                            UserRepository userRepository,
+                            SeatBookingService seatBookingService,
+                            WaitlistService waitlistService,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${oc.app.bookingSequencerEnabled:false}") boolean enabled,
+                            @Value("${oc.app.bookingSequencerLanes:8}") int laneCount,
+                            @Value("${oc.app.bookingSequencerQueueCapacity:10000}") int queueCapacity,
+                            @Value("${oc.app.bookingSequencerBatchSize:64}") int batchSize,
+                            @Value("${oc.app.bookingSequencerMaxSessions:1024}") int maxSessionsPerLane,
+                            @Value("${oc.app.bookingSequencerTimeoutMs:5000}") long timeoutMs) {
+        this.sessionRepository = sessionRepository;
+        this.userRepository = userRepository;
+        this.seatBookingService = seatBookingService;
+        this.waitlistService = waitlistService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxSessionsPerLane = maxSessionsPerLane;
+        this.timeoutMs = timeoutMs;
+        this.batchSizes = DistributionSummary.builder("booking.sequencer.batch.size")
+                .register(meterRegistry);
+        // Last, as the lane threads start right away
+        this.lanes = new Lane[enabled ? Math.max(1, laneCount) : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+        }
+
+        Gauge.builder("booking.sequencer.queue.size", lanes,
+                        all -> Arrays.stream(all).mapToInt(lane -> lane.queue.size()).sum())
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Waits until the booking is committed. Fails fast with a {@link ServiceUnavailableException} when the lane is
+     * saturated, and with the same exception after the timeout, the booking then possibly committing later.
+     */
+    public void participate(Long sessionId, Long userId) {
+        submit(new Booking(Operation.PARTICIPATE, sessionId, userId));
+    }
+
+    public void noLongerParticipate(Long sessionId, Long userId) {
+        submit(new Booking(Operation.CANCEL, sessionId, userId));
+    }
+
+    /**
+     * Drops the in-memory state of a session changed outside of the sequencer, to be reloaded on its next booking.
+     * Never blocks: the session is recorded on its lane, and the marker queued behind it only wakes the lane up, so
+     * a saturated queue delays the invalidation to the next batch instead of losing it.
+     */
+    public void invalidate(Long sessionId) {
+        if (!enabled) {
+            return;
+        }
+        Lane lane = laneOf(sessionId);
+        lane.invalidated.add(sessionId);
+        lane.queue.offer(new Booking(Operation.INVALIDATE, sessionId, null));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+        for (Lane lane : lanes) {
+            lane.thread.join(timeoutMs);
+        }
+    }
+
+    private void submit(Booking booking) {
+        if (!laneOf(booking.sessionId).queue.offer(booking)) {
+            throw new ServiceUnavailableException();
+        }
+
+        try {
+            booking.acknowledgement.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException();
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Lane laneOf(Long sessionId) {
+        long hash = sessionId * 0x9E3779B97F4A7C15L;
+        return lanes[(int) Math.floorMod(hash ^ (hash >>> 32), (long) lanes.length)];
+    }
+
+    private enum Operation {
+        PARTICIPATE, CANCEL, INVALIDATE
+    }
+
+    private static final class Booking {
+        private final Operation operation;
+
+        private final Long sessionId;
+
+        private final Long userId;
+
+        private final CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+
+        private Booking(Operation operation, Long sessionId, Long userId) {
+            this.operation = operation;
+            this.sessionId = sessionId;
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * Seats of a session as known by its lane, only ever read and written by the lane thread.
+     */
+    private static final class SeatState {
+        private final Integer capacity;
+
+        private final Set<Long> participants;
+
+        private SeatState(Integer capacity, Set<Long> participants) {
+            this.capacity = capacity;
+            this.participants = participants;
+        }
+
+        private boolean isFull() {
+            return capacity != null && participants.size() >= capacity;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final BlockingQueue<Booking> queue;
+
+        private final Map<Long, SeatState> seats = new LinkedHashMap<Long, SeatState>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SeatState> eldest) {
+                return size() > maxSessionsPerLane;
+            }
+        };
+
+        private final List<Booking> batch = new ArrayList<>();
+
+        private final Set<List<Long>> batchParticipations = new HashSet<>();
+
+        private final Set<Long> invalidated = ConcurrentHashMap.newKeySet();
+
+        private final Thread thread;
+
+        private Lane(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "booking-lane-" + index);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            List<Booking> drained = new ArrayList<>(batchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    drained.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                queue.drainTo(drained, batchSize - 1);
+                process(drained);
+                drained.clear();
+            }
+
+            Booking pending;
+            while ((pending = queue.poll()) != null) {
+                pending.acknowledgement.completeExceptionally(new ServiceUnavailableException());
+            }
+        }
+
+        private void process(List<Booking> drained) {
+            dropInvalidated();
+            for (Booking booking : drained) {
+                if (booking.operation == Operation.INVALIDATE) {
+                    dropInvalidated();
+                    continue;
+                }
+                // A second booking of the same user in one batch would depend on the statement order
+                if (batchParticipations.contains(Arrays.asList(booking.sessionId, booking.userId))) {
+                    flush();
+                }
+                try {
+                    accept(booking);
+                } catch (RuntimeException e) {
+                    booking.acknowledgement.completeExceptionally(e);
+                }
+            }
+            flush();
+        }
+
+        private void accept(Booking booking) {
+            SeatState state = seatsOf(booking.sessionId);
+            boolean participates = state.participants.contains(booking.userId);
+
+            if (booking.operation == Operation.PARTICIPATE) {
+                if (participates) {
+                    throw new BadRequestException();
+                }
+                if (state.isFull()) {
+                    throw new SessionFullException();
+                }
+                state.participants.add(booking.userId);
+            } else {
+                if (!participates) {
+                    throw new BadRequestException();
+                }
+                state.participants.remove(booking.userId);
+            }
+            batch.add(booking);
+            batchParticipations.add(Arrays.asList(booking.sessionId, booking.userId));
+        }
+
+        private void dropInvalidated() {
+            if (invalidated.isEmpty()) {
+                return;
+            }
+            flush();
+            for (Iterator<Long> sessionIds = invalidated.iterator(); sessionIds.hasNext(); ) {
+                Long sessionId = sessionIds.next();
+                sessionIds.remove();
+                seats.remove(sessionId);
+            }
+        }
+
+        private SeatState seatsOf(Long sessionId) {
+            SeatState state = seats.get(sessionId);
+            if (state == null) {
+                Session session = sessionRepository.findById(sessionId).orElseThrow(NotFoundException::new);
+                Set<Long> participants = new HashSet<>();
+                sessionRepository.findParticipations(Collections.singletonList(sessionId))
+                        .forEach(participation -> participants.add(participation.getUserId()));
+                state = new SeatState(session.getCapacity(), participants);
+                seats.put(sessionId, state);
+            }
+            return state;
+        }
+
+        private void flush() {
+            rejectUnknownUsers();
+            if (batch.isEmpty()) {
+                batchParticipations.clear();
+                return;
+            }
+            batchSizes.record(batch.size());
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                batch.forEach(booking -> booking.acknowledgement.complete(null));
+            } catch (RuntimeException e) {
+                log.warn("Booking batch of {} rolled back, replaying its bookings one by one: {}",
+                        batch.size(), e.getMessage());
+                batch.forEach(booking -> seats.remove(booking.sessionId));
+                batch.forEach(this::replay);
+            }
+            batch.clear();
+            batchParticipations.clear();
+        }
+
+        /**
+         * Fails, and takes out of the batch, the bookings of users that do not exist, as the single booking would.
+         */
+        private void rejectUnknownUsers() {
+            Set<Long> userIds = new HashSet<>();
+            for (Booking booking : batch) {
+                if (booking.operation == Operation.PARTICIPATE) {
+                    userIds.add(booking.userId);
+                }
+            }
+            if (userIds.isEmpty()) {
+                return;
+            }
+
+            Set<Long> existingIds = new HashSet<>(userRepository.findExistingIds(userIds));
+            for (Iterator<Booking> bookings = batch.iterator(); bookings.hasNext(); ) {
+                Booking booking = bookings.next();
+                if (booking.operation == Operation.PARTICIPATE && !existingIds.contains(booking.userId)) {
+                    bookings.remove();
+                    SeatState state = seats.get(booking.sessionId);
+                    if (state != null) {
+                        state.participants.remove(booking.userId);
+                    }
+                    booking.acknowledgement.completeExceptionally(new NotFoundException());
+                }
+            }
+        }
+
+        private void write(List<Booking> bookings) {
+            Map<Long, Integer> seatDeltas = new LinkedHashMap<>();
+            List<Object[]> inserts = new ArrayList<>();
+            List<Object[]> deletes = new ArrayList<>();
+            for (Booking booking : bookings) {
+                boolean participate = booking.operation == Operation.PARTICIPATE;
+                seatDeltas.merge(booking.sessionId, participate ? 1 : -1, Integer::sum);
+                (participate ? inserts : deletes).add(new Object[]{booking.sessionId, booking.userId});
+            }
+
+            // Seats first, as the single bookings do, so both paths lock the session row before PARTICIPATE
+            seatDeltas.forEach((sessionId, delta) -> {
+                if (delta != 0 && jdbcTemplate.update(UPDATE_SEATS_SQL, delta, sessionId, delta, delta) != 1) {
+                    throw new IllegalStateException("Seats of session " + sessionId + " changed outside of its lane");
+                }
+            });
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_PARTICIPANT_SQL, inserts);
+            }
+            if (!deletes.isEmpty()) {
+                for (int deleted : jdbcTemplate.batchUpdate(DELETE_PARTICIPANT_SQL, deletes)) {
+                    if (deleted == 0) {
+                        throw new IllegalStateException("Participation removed outside of its lane");
+                    }
+                }
+            }
+
+            // A user may have been queued after the cancellation was routed here, so the freed seats are offered
+            seatDeltas.forEach((sessionId, delta) -> {
+                for (int freed = 0; freed < -delta; freed++) {
+                    Optional<Long> promoted = waitlistService.promoteNext(sessionId);
+                    if (!promoted.isPresent()) {
+                        break;
+                    }
+                    SeatState state = seats.get(sessionId);
+                    if (state != null) {
+                        state.participants.add(promoted.get());
+                    }
+                }
+            });
+        }
+
+        private void replay(Booking booking) {
+            try {
+                if (booking.operation == Operation.PARTICIPATE) {
+                    seatBookingService.participate(booking.sessionId, booking.userId);
+                } else {
+                    seatBookingService.noLongerParticipate(booking.sessionId, booking.userId);
+                }
+                booking.acknowledgement.complete(null);
+            } catch (RuntimeException e) {
+                booking.acknowledgement.completeExceptionally(e);
+            }
+        }
+    }
+}
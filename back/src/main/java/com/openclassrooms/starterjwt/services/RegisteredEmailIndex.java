@@ -0,0 +1,61 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.cache.BloomFilter;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bloom filter of the registered emails, so that a signup with a new email can skip the existence query:
+ * a miss is definite, only a hit has to be confirmed against the USERS table.
+ * Emails are compared lower-cased, as the unique index of the table does. Deleted accounts stay in the filter
+ * until the next rebuild, which only costs a confirmation query.
+ */
+@Service
+public class RegisteredEmailIndex {
+    private final UserRepository userRepository;
+    private final long expectedEmails;
+    private final double falsePositiveRate;
+
+    private volatile BloomFilter registeredEmails;
+
+    public RegisteredEmailIndex(UserRepository userRepository,
+                                @Value("${oc.app.registeredEmailsExpectedCount:100000}") long expectedEmails,
+                                @Value("${oc.app.registeredEmailsFalsePositiveRate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.expectedEmails = expectedEmails;
+        this.falsePositiveRate = falsePositiveRate;
+        this.registeredEmails = new BloomFilter(expectedEmails, falsePositiveRate);
+    }
+
+    public boolean mightBeRegistered(String email) {
+        return registeredEmails.mightContain(normalize(email));
+    }
+
+    public void add(String email) {
+        BloomFilter filter = registeredEmails;
+        filter.put(normalize(email));
+        if (filter.isSaturated()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reloads the filter from the table, sized for twice the current number of users when it outgrew its expectation.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        List<String> emails = userRepository.findAllEmails();
+        BloomFilter filter = new BloomFilter(Math.max(expectedEmails, emails.size() * 2L), falsePositiveRate);
+        emails.forEach(email -> filter.put(normalize(email)));
+        registeredEmails = filter;
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
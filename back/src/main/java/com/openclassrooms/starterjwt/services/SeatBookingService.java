@@ -0,0 +1,69 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.SessionFullException;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Books and cancels one participation at a time with atomic statements, safe whatever the number of concurrent
+ * callers and application instances.
+ */
+@Service
+public class SeatBookingService {
+    private final SessionRepository sessionRepository;
+
+    private final WaitlistService waitlistService;
+
+    public SeatBookingService(SessionRepository sessionRepository, WaitlistService waitlistService) {
+        this.sessionRepository = sessionRepository;
+        this.waitlistService = waitlistService;
+    }
+
+    /**
+     * Books the user with a conditional seat update then a single insert into the join table, whatever the number
+     * of participants. A failed insert rolls the seat back.
+     */
+    @Transactional
+    public void participate(Long id, Long userId) {
+        if (this.sessionRepository.takeSeat(id) == 0) {
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new SessionFullException();
+        }
+
+        int inserted;
+        try {
+            inserted = this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException();
+        }
+        if (inserted == 0) {
+            throw new NotFoundException();
+        }
+    }
+
+    /**
+     * Cancels the participation, or the place in the waitlist of a user still waiting. A freed seat goes to the head
+     * of the waitlist in the same transaction.
+     */
+    @Transactional
+    public void noLongerParticipate(Long id, Long userId) {
+        if (this.sessionRepository.removeParticipant(id, userId) == 0) {
+            if (this.waitlistService.leave(id, userId)) {
+                return;
+            }
+            // Only a failed removal pays for telling an unknown session from a missing participation
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException();
+        }
+        this.sessionRepository.releaseSeat(id);
+        this.waitlistService.promoteNext(id);
+    }
+}
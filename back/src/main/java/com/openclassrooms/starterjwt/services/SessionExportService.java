@@ -0,0 +1,179 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the whole session catalog to a stream, with constant memory whatever its size. A single forward-only query
+ * reads the sessions joined with their participants in (session, user) order, and each session is written as soon as
+ * its last participant row is read.
+ */
+@Service
+public class SessionExportService {
+    public static final String JSON_LINES = "jsonl";
+
+    public static final String CSV = "csv";
+
+    static final String EXPORT_SQL = "SELECT s.id, s.name, s.date, s.teacher_id, s.description, s.capacity, "
+            + "s.created_at, s.updated_at, p.user_id "
+            + "FROM SESSIONS s LEFT JOIN PARTICIPATE p ON p.session_id = s.id "
+            + "ORDER BY s.id, p.user_id";
+
+    /**
+     * Connector/J buffers the whole result set for any other fetch size (unless useCursorFetch is set on the connection),
+     * while this one streams the rows of a forward-only, read-only result set as they come.
+     */
+    static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    static final String CSV_HEADER = "id,name,date,teacher_id,description,capacity,participant_count,users,created_at,updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    public SessionExportService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean supports(String format) {
+        return JSON_LINES.equals(format) || CSV.equals(format);
+    }
+
+    /**
+     * Writes one JSON object per line, as the session listing would serialize each session.
+     */
+    public void exportJsonLines(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        // Written through the buffer, not flushed to the client after every session
+        try (SequenceWriter sessions = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(writer)) {
+            export(sessions::write);
+        }
+    }
+
+    public void exportCsv(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        export(session -> {
+            writer.write(csvLine(session));
+            writer.write('\n');
+        });
+        writer.flush();
+    }
+
+    private void export(SessionWriter sessionWriter) throws IOException {
+        SessionGrouper grouper = new SessionGrouper(sessionWriter);
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(STREAMING_FETCH_SIZE);
+                return statement;
+            }, grouper::processRow);
+            grouper.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static String csvLine(SessionDto session) {
+        return String.join(",",
+                String.valueOf(session.getId()),
+                csvValue(session.getName()),
+                session.getDate() == null ? "" : session.getDate().toInstant().toString(),
+                session.getTeacher_id() == null ? "" : String.valueOf(session.getTeacher_id()),
+                csvValue(session.getDescription()),
+                session.getCapacity() == null ? "" : String.valueOf(session.getCapacity()),
+                String.valueOf(session.getParticipantCount()),
+                session.getUsers().stream().map(String::valueOf).collect(Collectors.joining(" ")),
+                session.getCreatedAt() == null ? "" : session.getCreatedAt().toString(),
+                session.getUpdatedAt() == null ? "" : session.getUpdatedAt().toString());
+    }
+
+    /**
+     * Quotes the value when it holds a separator, a quote or a line break, doubling its quotes.
+     */
+    static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private interface SessionWriter {
+        void write(SessionDto session) throws IOException;
+    }
+
+    /**
+     * Folds the consecutive rows of a session into one DTO, written when the next session starts.
+     */
+    private static final class SessionGrouper {
+        private final SessionWriter sessionWriter;
+
+        private SessionDto current;
+
+        private SessionGrouper(SessionWriter sessionWriter) {
+            this.sessionWriter = sessionWriter;
+        }
+
+        private void processRow(ResultSet row) throws SQLException {
+            long id = row.getLong("id");
+            if (current == null || current.getId() != id) {
+                finish();
+                current = new SessionDto(id,
+                        row.getString("name"),
+                        row.getTimestamp("date"),
+                        row.getObject("teacher_id", Long.class),
+                        row.getString("description"),
+                        row.getObject("capacity", Integer.class),
+                        toLocalDateTime(row.getTimestamp("created_at")),
+                        toLocalDateTime(row.getTimestamp("updated_at")));
+                current.setUsers(new ArrayList<>());
+                current.setParticipantCount(0);
+            }
+
+            long userId = row.getLong("user_id");
+            if (!row.wasNull()) {
+                current.getUsers().add(userId);
+                current.setParticipantCount(current.getUsers().size());
+            }
+        }
+
+        private void finish() {
+            if (current == null) {
+                return;
+            }
+            try {
+                sessionWriter.write(current);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+
+        private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+            return timestamp == null ? null : timestamp.toLocalDateTime();
+        }
+    }
+}
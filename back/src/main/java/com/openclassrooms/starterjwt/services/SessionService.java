@@ -1,78 +1,207 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
-import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.SessionFullException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
-import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.SessionSpecifications;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class SessionService {
     private final SessionRepository sessionRepository;
 
-    private final UserRepository userRepository;
+    private final SeatBookingService seatBookingService;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final BookingSequencer bookingSequencer;
+
+    private final WaitlistService waitlistService;
+
+    public SessionService(SessionRepository sessionRepository,
+                          SeatBookingService seatBookingService,
+                          BookingSequencer bookingSequencer,
+                          WaitlistService waitlistService) {
         this.sessionRepository = sessionRepository;
-        this.userRepository = userRepository;
+        this.seatBookingService = seatBookingService;
+        this.bookingSequencer = bookingSequencer;
+        this.waitlistService = waitlistService;
     }
 
+    @Transactional
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        Session created = this.sessionRepository.save(session);
+        this.recountSeatsIfParticipants(created);
+        return created;
     }
 
+    @Transactional
     public void delete(Long id) {
+        this.waitlistService.removeSession(id);
         this.sessionRepository.deleteById(id);
+        this.afterCommit(() -> this.bookingSequencer.invalidate(id));
     }
 
     public List<Session> findAll() {
         return this.sessionRepository.findAll();
     }
 
+    /**
+     * Up to size sessions matching the filter in (date, id) order, starting right after the given cursor or from
+     * the beginning when null.
+     */
+    public List<Session> findPage(SessionFilter filter, SessionCursor after, int size) {
+        Specification<Session> specification = SessionSpecifications.matching(filter);
+        if (after != null) {
+            specification = specification.and(SessionSpecifications.after(after.getDate(), after.getId()));
+        }
+        return this.sessionRepository.findPage(specification, size);
+    }
+
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
-    public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+    /**
+     * Read path of the listing without entities: the sessions come from a DTO projection and their participants
+     * from a single id query, with no persistence context bookkeeping nor dirty checking.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionDto> findAllDtos() {
+        return this.withParticipants(this.sessionRepository.findDtos(Specification.where(null)));
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
-            throw new NotFoundException();
+    /**
+     * {@link #findPage(SessionFilter, SessionCursor, int)} through the DTO projection.
+     */
+    @Transactional(readOnly = true)
+    public List<SessionDto> findDtoPage(SessionFilter filter, SessionCursor after, int size) {
+        Specification<Session> specification = SessionSpecifications.matching(filter);
+        if (after != null) {
+            specification = specification.and(SessionSpecifications.after(after.getDate(), after.getId()));
         }
+        return this.withParticipants(this.sessionRepository.findDtoPage(specification, size));
+    }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
-            throw new BadRequestException();
+    @Transactional(readOnly = true)
+    public SessionDto getDtoById(Long id) {
+        List<SessionDto> sessions = this.withParticipants(
+                this.sessionRepository.findDtoPage(SessionSpecifications.withId(id), 1));
+        return sessions.isEmpty() ? null : sessions.get(0);
+    }
+
+    /**
+     * Participant ids per session, from a single projection query over the join table.
+     * Every requested session is present in the result, with an empty list when it has no participant.
+     */
+    public Map<Long, List<Long>> findParticipantIds(Collection<Long> sessionIds) {
+        Map<Long, List<Long>> participantIds = new HashMap<>();
+        if (sessionIds.isEmpty()) {
+            return participantIds;
         }
 
-        session.getUsers().add(user);
+        sessionIds.forEach(sessionId -> participantIds.put(sessionId, new ArrayList<>()));
+        for (SessionRepository.Participation participation : this.sessionRepository.findParticipations(sessionIds)) {
+            participantIds.get(participation.getSessionId()).add(participation.getUserId());
+        }
+        return participantIds;
+    }
 
-        this.sessionRepository.save(session);
+    private List<SessionDto> withParticipants(List<SessionDto> sessions) {
+        Map<Long, List<Long>> participantIds = this.findParticipantIds(
+                sessions.stream().map(SessionDto::getId).collect(Collectors.toList()));
+        for (SessionDto session : sessions) {
+            List<Long> sessionParticipantIds = participantIds.get(session.getId());
+            session.setUsers(sessionParticipantIds);
+            session.setParticipantCount(sessionParticipantIds.size());
+        }
+        return sessions;
     }
 
-    public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+    /**
+     * Replaces the session, rejecting more participants than its capacity. Seats freed by the new participant list
+     * or capacity go to the head of the waitlist within the same transaction.
+     */
+    @Transactional
+    public Session update(Long id, Session session) {
+        if (session.getCapacity() != null && session.getUsers() != null
+                && session.getUsers().size() > session.getCapacity()) {
+            throw new BadRequestException("Error: More participants than the capacity of the session!");
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
-            throw new BadRequestException();
+        session.setId(id);
+        Session updated = this.sessionRepository.save(session);
+        this.recountSeatsIfParticipants(updated);
+        while (this.waitlistService.promoteNext(id).isPresent()) {
+            // One seat per promotion, until the session is full or nobody waits
+        }
+        this.afterCommit(() -> this.bookingSequencer.invalidate(id));
+        return updated;
+    }
+
+    /**
+     * Books the user through the single-writer lane of the session when the sequencer is enabled, otherwise with
+     * the atomic statements of {@link SeatBookingService}. A user who finds the session full is queued instead, and
+     * gets back their position in the waitlist.
+     */
+    public Optional<Integer> participate(Long id, Long userId) {
+        try {
+            if (this.bookingSequencer.isEnabled()) {
+                this.bookingSequencer.participate(id, userId);
+            } else {
+                this.seatBookingService.participate(id, userId);
+            }
+            return Optional.empty();
+        } catch (SessionFullException e) {
+            return Optional.of(this.waitlistService.enqueue(id, userId));
+        }
+    }
+
+    /**
+     * Cancellations of a session with a waitlist bypass the sequencer, as the user may only be waiting. The lanes
+     * promote from the waitlist too, for users queued once a cancellation was routed to them.
+     */
+    public void noLongerParticipate(Long id, Long userId) {
+        if (this.bookingSequencer.isEnabled() && !this.waitlistService.hasWaiting(id)) {
+            this.bookingSequencer.noLongerParticipate(id, userId);
+        } else {
+            this.seatBookingService.noLongerParticipate(id, userId);
+            this.afterCommit(() -> this.bookingSequencer.invalidate(id));
         }
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+    public Optional<Integer> findWaitlistPosition(Long id, Long userId) {
+        return this.waitlistService.positionOf(id, userId);
+    }
 
-        this.sessionRepository.save(session);
+    private void recountSeatsIfParticipants(Session session) {
+        if (session.getUsers() != null) {
+            this.sessionRepository.recountSeats(session.getId());
+        }
+    }
+
+    /**
+     * Runs the action once the current transaction commits, so that a lane reloading the session right away cannot
+     * read the state being replaced; right away outside of a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -1,5 +1,6 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.UnknownReferenceException;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.springframework.stereotype.Service;
@@ -21,4 +22,12 @@ public class TeacherService {
     public Teacher findById(Long id) {
         return this.teacherRepository.findById(id).orElse(null);
     }
+
+    /**
+     * The teacher, or an {@link UnknownReferenceException} when it does not exist.
+     */
+    public Teacher getExisting(Long id) {
+        return this.teacherRepository.findById(id)
+                .orElseThrow(() -> new UnknownReferenceException("Error: Unknown teacher id " + id + "!"));
+    }
 }
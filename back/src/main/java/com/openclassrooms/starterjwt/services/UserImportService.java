@@ -0,0 +1,313 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.response.UserImportResponse;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Creates user accounts in bulk from a streamed JSON array or CSV file of signup records.
+ * Records are validated and deduplicated in memory, then handled in chunks: one query finds the emails already
+ * registered, passwords are hashed on the shared hashing pool a few at a time so that logins keep their share of it,
+ * and the chunk is saved in one transaction. Hibernate sends it as JDBC batches (multi-row INSERTs with
+ * {@code rewriteBatchedStatements}), the ids coming in blocks from the pooled USERS_SEQ generator.
+ */
+@Service
+public class UserImportService {
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final List<String> CSV_COLUMNS = Arrays.asList("email", "firstname", "lastname", "password");
+
+    private final UserRepository userRepository;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final RegisteredEmailIndex registeredEmailIndex;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int hashingWindow;
+
+    public UserImportService(UserRepository userRepository,
+                             BoundedPasswordEncoder passwordEncoder,
+                             RegisteredEmailIndex registeredEmailIndex,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             @Value("${oc.app.userImportBatchSize:500}") int batchSize,
+                             @Value("${oc.app.userImportHashingWindow:16}") int hashingWindow) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.registeredEmailIndex = registeredEmailIndex;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.hashingWindow = hashingWindow;
+    }
+
+    public UserImportResponse importJson(InputStream input) throws IOException {
+        ImportRun run = new ImportRun();
+        try (MappingIterator<SignupRequest> records = objectMapper.readerFor(SignupRequest.class).readValues(input)) {
+            int row = 0;
+            while (hasNextRecord(records, run, row + 1)) {
+                row++;
+                SignupRequest request;
+                try {
+                    request = records.next();
+                } catch (RuntimeJsonMappingException e) {
+                    run.reject(row, null, "Malformed record: " + e.getMessage());
+                    continue;
+                } catch (RuntimeException e) {
+                    stopOnSyntaxError(e, run, row);
+                    break;
+                }
+                run.accept(row, request);
+            }
+        }
+        return run.finish();
+    }
+
+    /**
+     * A JSON syntax error cannot be skipped past, so it ends the import on the row it was met, keeping the chunks
+     * already saved in the response.
+     */
+    private static boolean hasNextRecord(MappingIterator<SignupRequest> records, ImportRun run, int row) {
+        try {
+            return records.hasNext();
+        } catch (RuntimeException e) {
+            stopOnSyntaxError(e, run, row);
+            return false;
+        }
+    }
+
+    /**
+     * The iterator wraps the parse errors, as any other I/O error, in a bare {@link RuntimeException}.
+     */
+    private static void stopOnSyntaxError(RuntimeException e, ImportRun run, int row) {
+        Throwable cause = e instanceof RuntimeJsonMappingException ? e : e.getCause();
+        if (!(cause instanceof JsonProcessingException) && !(cause instanceof RuntimeJsonMappingException)) {
+            throw e;
+        }
+        run.reject(row, null, "Malformed JSON, import stopped: " + cause.getMessage());
+    }
+
+    public UserImportResponse importCsv(InputStream input) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return run.finish();
+        }
+
+        List<String> headerColumns = parseCsvLine(header).stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        int[] positions = CSV_COLUMNS.stream().mapToInt(headerColumns::indexOf).toArray();
+        if (Arrays.stream(positions).anyMatch(position -> position < 0)) {
+            run.reject(1, null, "Header must contain the columns email, firstName, lastName and password");
+            return run.finish();
+        }
+
+        int row = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            List<String> values = parseCsvLine(line);
+            SignupRequest signupRequest = new SignupRequest();
+            signupRequest.setEmail(valueAt(values, positions[0]));
+            signupRequest.setFirstName(valueAt(values, positions[1]));
+            signupRequest.setLastName(valueAt(values, positions[2]));
+            signupRequest.setPassword(valueAt(values, positions[3]));
+            run.accept(row, signupRequest);
+        }
+        return run.finish();
+    }
+
+    private static String valueAt(List<String> values, int position) {
+        return position < values.size() ? values.get(position) : null;
+    }
+
+    /**
+     * Splits a CSV line on commas, honouring double-quoted values and doubled quotes inside them.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static final class PendingUser {
+        private final int row;
+        private final SignupRequest request;
+        private String passwordHash;
+
+        private PendingUser(int row, SignupRequest request) {
+            this.row = row;
+            this.request = request;
+        }
+    }
+
+    private final class ImportRun {
+        private final UserImportResponse response = new UserImportResponse();
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<PendingUser> chunk = new ArrayList<>();
+
+        private void accept(int row, SignupRequest request) {
+            Set<ConstraintViolation<SignupRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                reject(row, request.getEmail(), violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                return;
+            }
+
+            if (!seenEmails.add(request.getEmail().toLowerCase(Locale.ROOT))) {
+                reject(row, request.getEmail(), "Email appears more than once in the import");
+                return;
+            }
+
+            chunk.add(new PendingUser(row, request));
+            if (chunk.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void reject(int row, String email, String message) {
+            response.setFailed(response.getFailed() + 1);
+            if (response.getErrors().size() < MAX_REPORTED_ERRORS) {
+                response.getErrors().add(new UserImportResponse.RowError(row, email, message));
+            }
+        }
+
+        private UserImportResponse finish() {
+            flush();
+            response.getErrors().sort(Comparator.comparingInt(UserImportResponse.RowError::getRow));
+            return response;
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            List<PendingUser> pendingUsers = withoutRegisteredEmails(chunk);
+            chunk.clear();
+            List<PendingUser> hashedUsers = hashPasswords(pendingUsers);
+            if (hashedUsers.isEmpty()) {
+                return;
+            }
+
+            try {
+                userRepository.saveAll(hashedUsers.stream()
+                        .map(this::toUser)
+                        .collect(Collectors.toList()));
+                hashedUsers.forEach(this::imported);
+            } catch (DataIntegrityViolationException e) {
+                // An email registered meanwhile rolls the whole chunk back: save the rows one by one to isolate it
+                for (PendingUser user : hashedUsers) {
+                    try {
+                        userRepository.save(toUser(user));
+                        imported(user);
+                    } catch (DataIntegrityViolationException rowException) {
+                        reject(user.row, user.request.getEmail(), "Email is already taken");
+                    }
+                }
+            }
+        }
+
+        private List<PendingUser> withoutRegisteredEmails(List<PendingUser> pendingUsers) {
+            Set<String> registeredEmails = userRepository.findExistingEmails(pendingUsers.stream()
+                    .map(user -> user.request.getEmail())
+                    .collect(Collectors.toList()))
+                    .stream()
+                    .map(email -> email.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+
+            List<PendingUser> newUsers = new ArrayList<>(pendingUsers.size());
+            for (PendingUser user : pendingUsers) {
+                if (registeredEmails.contains(user.request.getEmail().toLowerCase(Locale.ROOT))) {
+                    reject(user.row, user.request.getEmail(), "Email is already taken");
+                } else {
+                    newUsers.add(user);
+                }
+            }
+            return newUsers;
+        }
+
+        private List<PendingUser> hashPasswords(List<PendingUser> pendingUsers) {
+            List<CompletableFuture<String>> hashes = new ArrayList<>(pendingUsers.size());
+            for (int i = 0; i < pendingUsers.size(); i++) {
+                // Bounded number of hashes in flight, the pool is shared with the interactive logins
+                if (i >= hashingWindow) {
+                    hashes.get(i - hashingWindow).exceptionally(e -> null).join();
+                }
+                hashes.add(passwordEncoder.encodeAsync(pendingUsers.get(i).request.getPassword()));
+            }
+
+            List<PendingUser> hashedUsers = new ArrayList<>(pendingUsers.size());
+            for (int i = 0; i < pendingUsers.size(); i++) {
+                PendingUser user = pendingUsers.get(i);
+                try {
+                    user.passwordHash = hashes.get(i).join();
+                    hashedUsers.add(user);
+                } catch (CompletionException e) {
+                    reject(user.row, user.request.getEmail(), "Password could not be hashed, retry later");
+                }
+            }
+            return hashedUsers;
+        }
+
+        private User toUser(PendingUser user) {
+            return new User(user.request.getEmail(), user.request.getLastName(), user.request.getFirstName(),
+                    user.passwordHash, false);
+        }
+
+        private void imported(PendingUser user) {
+            response.setImported(response.getImported() + 1);
+            registeredEmailIndex.add(user.request.getEmail());
+        }
+    }
+}
@@ -1,22 +1,66 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.UnknownReferenceException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final UserDetailsServiceImpl userDetailsService;
+
+    private final WaitlistService waitlistService;
+
+    public UserService(UserRepository userRepository,
+                       UserDetailsServiceImpl userDetailsService,
+                       WaitlistService waitlistService) {
         this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
+        this.waitlistService = waitlistService;
     }
 
+    @Transactional
     public void delete(Long id) {
+        this.waitlistService.removeUser(id);
         this.userRepository.deleteById(id);
+        this.userDetailsService.evictUserDetails(id);
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    /**
+     * References to the given users, for foreign keys only: their existence is checked with a single id query and
+     * no user row is loaded. Duplicated ids are kept once.
+     */
+    public List<User> getReferences(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> existingIds = new HashSet<>(this.userRepository.findExistingIds(ids));
+        List<Long> unknownIds = ids.stream()
+                .filter(id -> !existingIds.contains(id))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!unknownIds.isEmpty()) {
+            throw new UnknownReferenceException("Error: Unknown user ids " + unknownIds + "!");
+        }
+
+        return ids.stream()
+                .distinct()
+                .map(this.userRepository::getById)
+                .collect(Collectors.toList());
+    }
 }
@@ -0,0 +1,203 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * FIFO waitlist of the full sessions. The WAITLIST table is the reference; each session with waiting users also has
+ * an in-memory mirror ordered by entry id like the table, so that positions are answered without any query and
+ * changed only once committed, whatever the order in which concurrent commits reach the mirror.
+ */
+@Service
+public class WaitlistService {
+    private final WaitlistRepository waitlistRepository;
+
+    private final SessionRepository sessionRepository;
+
+    private final UserRepository userRepository;
+
+    private final ConcurrentMap<Long, SessionWaitlist> waitlists = new ConcurrentHashMap<>();
+
+    public WaitlistService(WaitlistRepository waitlistRepository,
+                           SessionRepository sessionRepository,
+                           UserRepository userRepository) {
+        this.waitlistRepository = waitlistRepository;
+        this.sessionRepository = sessionRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Queues the user at the end of the waitlist, or keeps their place when already waiting, and returns the position.
+     */
+    public int enqueue(Long sessionId, Long userId) {
+        try {
+            if (this.waitlistRepository.enqueue(sessionId, userId) == 0) {
+                if (!this.userRepository.existsById(userId)) {
+                    throw new NotFoundException();
+                }
+                // Already participating
+                throw new BadRequestException();
+            }
+            this.waitlistRepository.findBySessionIdAndUserId(sessionId, userId)
+                    .ifPresent(entry -> this.afterCommit(() -> this.waitlistOf(sessionId).add(entry)));
+        } catch (DataIntegrityViolationException e) {
+            // Already waiting, the position is kept
+        }
+        return this.positionOf(sessionId, userId).orElseThrow(NotFoundException::new);
+    }
+
+    /**
+     * Position in the waitlist, read from the in-memory mirror once the waitlist of the session is loaded.
+     */
+    public Optional<Integer> positionOf(Long sessionId, Long userId) {
+        SessionWaitlist waitlist = this.loadedWaitlistOf(sessionId);
+        return waitlist == null ? Optional.empty() : waitlist.positionOf(userId);
+    }
+
+    public boolean hasWaiting(Long sessionId) {
+        SessionWaitlist waitlist = this.loadedWaitlistOf(sessionId);
+        return waitlist != null && !waitlist.isEmpty();
+    }
+
+    /**
+     * Removes the user from the waitlist, returning whether they were waiting.
+     */
+    public boolean leave(Long sessionId, Long userId) {
+        if (this.waitlistRepository.remove(sessionId, userId) == 0) {
+            return false;
+        }
+        this.afterCommit(() -> this.forget(sessionId, userId));
+        return true;
+    }
+
+    /**
+     * Seats the head of the waitlist within the transaction that freed a seat. That transaction already holds the
+     * session row through its seat update, so concurrent cancellations promote distinct users one at a time.
+     */
+    @Transactional
+    public Optional<Long> promoteNext(Long sessionId) {
+        if (!this.hasWaiting(sessionId)) {
+            return Optional.empty();
+        }
+
+        Optional<WaitlistEntry> head = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId);
+        if (!head.isPresent() || this.sessionRepository.takeSeat(sessionId) == 0) {
+            return Optional.empty();
+        }
+
+        Long userId = head.get().getUserId();
+        this.waitlistRepository.remove(sessionId, userId);
+        this.sessionRepository.addParticipant(sessionId, userId);
+        this.afterCommit(() -> this.forget(sessionId, userId));
+        return Optional.of(userId);
+    }
+
+    /**
+     * Empties the waitlist of a session within the transaction deleting it, as its rows reference the session.
+     */
+    public void removeSession(Long sessionId) {
+        this.waitlistRepository.deleteBySessionId(sessionId);
+        this.afterCommit(() -> this.waitlists.remove(sessionId));
+    }
+
+    /**
+     * Takes the user out of every waitlist within the transaction deleting them, as their rows reference the user.
+     */
+    public void removeUser(Long userId) {
+        if (this.waitlistRepository.deleteByUserId(userId) > 0) {
+            this.afterCommit(() -> this.waitlists.values().forEach(waitlist -> waitlist.remove(userId)));
+        }
+    }
+
+    private void forget(Long sessionId, Long userId) {
+        SessionWaitlist waitlist = this.waitlists.get(sessionId);
+        if (waitlist != null) {
+            waitlist.remove(userId);
+        }
+    }
+
+    private SessionWaitlist waitlistOf(Long sessionId) {
+        return this.waitlists.computeIfAbsent(sessionId,
+                id -> new SessionWaitlist(this.waitlistRepository.findBySessionIdOrderByIdAsc(id)));
+    }
+
+    /**
+     * Mirror of the session, loaded from the table on first use. Sessions nobody waits for are not kept in memory,
+     * so that looking up unknown session ids cannot grow the map.
+     */
+    private SessionWaitlist loadedWaitlistOf(Long sessionId) {
+        SessionWaitlist waitlist = this.waitlists.get(sessionId);
+        if (waitlist != null) {
+            return waitlist;
+        }
+        List<WaitlistEntry> entries = this.waitlistRepository.findBySessionIdOrderByIdAsc(sessionId);
+        if (entries.isEmpty()) {
+            return null;
+        }
+        SessionWaitlist loaded = new SessionWaitlist(entries);
+        SessionWaitlist previous = this.waitlists.putIfAbsent(sessionId, loaded);
+        return previous == null ? loaded : previous;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * User ids keyed by their entry id, so that an entry committed late still takes its place in the queue.
+     */
+    private static final class SessionWaitlist {
+        private final TreeMap<Long, Long> userIdsByEntryId = new TreeMap<>();
+
+        private SessionWaitlist(List<WaitlistEntry> entries) {
+            entries.forEach(this::add);
+        }
+
+        private synchronized void add(WaitlistEntry entry) {
+            userIdsByEntryId.put(entry.getId(), entry.getUserId());
+        }
+
+        private synchronized void remove(Long userId) {
+            userIdsByEntryId.values().remove(userId);
+        }
+
+        private synchronized boolean isEmpty() {
+            return userIdsByEntryId.isEmpty();
+        }
+
+        private synchronized Optional<Integer> positionOf(Long userId) {
+            int position = 1;
+            for (Long waitingUserId : userIdsByEntryId.values()) {
+                if (waitingUserId.equals(userId)) {
+                    return Optional.of(position);
+                }
+                position++;
+            }
+            return Optional.empty();
+        }
+    }
+}
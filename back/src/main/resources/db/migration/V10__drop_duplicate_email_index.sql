@@ -0,0 +1,22 @@
+-- On a schema first created by Hibernate, the @UniqueConstraint of User had already made a unique index on email
+-- (named UK_...) when V3 added `email`: the older one is dropped, while a single unique index on email is always kept.
+-- MySQL has no DROP INDEX IF EXISTS, so the statement is built from the indexes actually present
+SET @duplicate_email_indexes = (
+  SELECT GROUP_CONCAT(CONCAT('DROP INDEX `', s.`INDEX_NAME`, '`') SEPARATOR ', ')
+  FROM information_schema.`STATISTICS` s
+  WHERE s.`TABLE_SCHEMA` = DATABASE() AND UPPER(s.`TABLE_NAME`) = 'USERS'
+    AND s.`NON_UNIQUE` = 0 AND s.`COLUMN_NAME` = 'email' AND s.`SEQ_IN_INDEX` = 1 AND s.`INDEX_NAME` <> 'email'
+    AND NOT EXISTS (
+      SELECT 1 FROM information_schema.`STATISTICS` c
+      WHERE c.`TABLE_SCHEMA` = s.`TABLE_SCHEMA` AND c.`TABLE_NAME` = s.`TABLE_NAME`
+        AND c.`INDEX_NAME` = s.`INDEX_NAME` AND c.`SEQ_IN_INDEX` = 2)
+    AND EXISTS (
+      SELECT 1 FROM information_schema.`STATISTICS` v
+      WHERE v.`TABLE_SCHEMA` = s.`TABLE_SCHEMA` AND v.`TABLE_NAME` = s.`TABLE_NAME`
+        AND v.`INDEX_NAME` = 'email' AND v.`NON_UNIQUE` = 0)
+);
+SET @drop_duplicate_email_indexes = IF(@duplicate_email_indexes IS NULL, 'DO 0',
+  CONCAT('ALTER TABLE `USERS` ', @duplicate_email_indexes));
+PREPARE drop_duplicate_email_indexes FROM @drop_duplicate_email_indexes;
+EXECUTE drop_duplicate_email_indexes;
+DEALLOCATE PREPARE drop_duplicate_email_indexes;
@@ -0,0 +1,13 @@
+CREATE TABLE `REVOKED_TOKENS` (
+  `jti` VARCHAR(36) PRIMARY KEY,
+  `expires_at` DATETIME NOT NULL,
+  INDEX `idx_revoked_tokens_expires_at` (`expires_at`)
+);
+
+CREATE TABLE `AUTH_TOKENS` (
+  `token_hash` VARCHAR(44) PRIMARY KEY,
+  `username` VARCHAR(255) NOT NULL,
+  `expires_at` DATETIME NOT NULL,
+  INDEX `idx_auth_tokens_username` (`username`),
+  INDEX `idx_auth_tokens_expires_at` (`expires_at`)
+);
@@ -0,0 +1 @@
+ALTER TABLE `USERS` ADD UNIQUE (`email`);
@@ -0,0 +1,5 @@
+-- The leading columns also serve the lookups by date alone and by teacher alone
+ALTER TABLE `SESSIONS`
+  ADD COLUMN `capacity` INT AFTER `date`,
+  ADD INDEX `idx_sessions_date_id` (`date`, `id`),
+  ADD INDEX `idx_sessions_teacher_id_date` (`teacher_id`, `date`);
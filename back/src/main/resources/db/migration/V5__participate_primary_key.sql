@@ -0,0 +1,15 @@
+-- Duplicated and incomplete participations are dropped before the key is added
+CREATE TABLE `PARTICIPATE_DEDUPLICATED` AS
+  SELECT DISTINCT `session_id`, `user_id` FROM `PARTICIPATE`
+  WHERE `session_id` IS NOT NULL AND `user_id` IS NOT NULL;
+DELETE FROM `PARTICIPATE`;
+INSERT INTO `PARTICIPATE` (`session_id`, `user_id`)
+  SELECT `session_id`, `user_id` FROM `PARTICIPATE_DEDUPLICATED`;
+DROP TABLE `PARTICIPATE_DEDUPLICATED`;
+
+-- The primary key serves the lookups by session, the reverse index the lookups by user
+ALTER TABLE `PARTICIPATE`
+  MODIFY `user_id` INT NOT NULL,
+  MODIFY `session_id` INT NOT NULL,
+  ADD PRIMARY KEY (`session_id`, `user_id`),
+  ADD INDEX `idx_participate_user_id_session_id` (`user_id`, `session_id`);
@@ -0,0 +1,3 @@
+ALTER TABLE `SESSIONS` ADD COLUMN `seats_taken` INT NOT NULL DEFAULT 0 AFTER `capacity`;
+
+UPDATE `SESSIONS` s SET `seats_taken` = (SELECT COUNT(*) FROM `PARTICIPATE` p WHERE p.`session_id` = s.`id`);
@@ -0,0 +1,9 @@
+-- MySQL has no sequences: Hibernate emulates each one with a single row table holding the next free id
+CREATE TABLE `USERS_SEQ` (`next_val` BIGINT NOT NULL);
+INSERT INTO `USERS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 1 FROM `USERS`;
+
+CREATE TABLE `TEACHERS_SEQ` (`next_val` BIGINT NOT NULL);
+INSERT INTO `TEACHERS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 1 FROM `TEACHERS`;
+
+CREATE TABLE `SESSIONS_SEQ` (`next_val` BIGINT NOT NULL);
+INSERT INTO `SESSIONS_SEQ` SELECT COALESCE(MAX(`id`), 0) + 1 FROM `SESSIONS`;
@@ -0,0 +1,7 @@
+-- Ids of these tables only come from their *_SEQ table: without AUTO_INCREMENT, an INSERT that does not take its id
+-- from the sequence fails instead of silently using a value the pooled generator may hand out later
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE `USERS` MODIFY `id` INT NOT NULL;
+ALTER TABLE `TEACHERS` MODIFY `id` INT NOT NULL;
+ALTER TABLE `SESSIONS` MODIFY `id` INT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
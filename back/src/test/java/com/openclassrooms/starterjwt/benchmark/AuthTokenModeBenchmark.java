@@ -0,0 +1,121 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.openclassrooms.starterjwt.repository.AuthTokenRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.JwtVerification;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT against opaque token mode: per-request CPU cost of turning the bearer token into a principal,
+ * with {@value #ACTIVE_SESSIONS} active sessions in the opaque store.
+ * {@link #main(String[])} also prints the Authorization header sizes and the heap retained by the opaque store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AuthTokenModeBenchmark {
+    private static final int ACTIVE_SESSIONS = 100_000;
+
+    private JwtUtils jwtUtils;
+    private OpaqueTokenService opaqueTokenService;
+    private String jwt;
+    private String opaqueToken;
+
+    @Setup
+    public void setup() {
+        jwtUtils = newJwtUtils();
+        jwt = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal(0), null));
+
+        opaqueTokenService = newOpaqueTokenService();
+        for (int i = 1; i < ACTIVE_SESSIONS; i++) {
+            opaqueTokenService.issue(principal(i));
+        }
+        opaqueToken = opaqueTokenService.issue(principal(0));
+    }
+
+    @Benchmark
+    public UserDetails resolveJwt() {
+        JwtVerification verification = jwtUtils.verifyJwtToken(jwt);
+        return verification.isValid() ? jwtUtils.getUserDetailsFromClaims(verification.getClaims()) : null;
+    }
+
+    @Benchmark
+    public UserDetails resolveOpaqueToken() {
+        return opaqueTokenService.resolve(opaqueToken);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        JwtUtils jwtUtils = newJwtUtils();
+        String jwt = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal(0), null));
+        OpaqueTokenService sizingService = newOpaqueTokenService();
+        String opaqueToken = sizingService.issue(principal(0));
+        System.out.printf("Authorization header: JWT %d bytes, opaque %d bytes%n",
+                ("Bearer " + jwt).length(), ("Bearer " + opaqueToken).length());
+
+        long heapBefore = usedHeap();
+        OpaqueTokenService opaqueTokenService = newOpaqueTokenService();
+        String lastToken = null;
+        for (int i = 0; i < ACTIVE_SESSIONS; i++) {
+            lastToken = opaqueTokenService.issue(principal(i));
+        }
+        long heapAfter = usedHeap();
+        // Resolving after the measurement keeps the store reachable while the heap is measured
+        System.out.printf("Opaque store heap for %d sessions: %d KiB (principals included, last one %s), JWT mode: none%n",
+                ACTIVE_SESSIONS, (heapAfter - heapBefore) / 1024,
+                opaqueTokenService.resolve(lastToken).getUsername());
+
+        new Runner(new OptionsBuilder()
+                .include(AuthTokenModeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static JwtUtils newJwtUtils() {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "openclassroomsT");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    private static OpaqueTokenService newOpaqueTokenService() {
+        // Stub-only mocks do not record the invocations, which would otherwise retain every saved row
+        return new OpaqueTokenService(Mockito.mock(AuthTokenRepository.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(UserDetailsServiceImpl.class, Mockito.withSettings().stubOnly()),
+                OpaqueTokenService.OPAQUE_MODE, 86400000, 64, 2 * ACTIVE_SESSIONS, new SimpleMeterRegistry());
+    }
+
+    private static UserDetailsImpl principal(long id) {
+        return UserDetailsImpl.builder()
+                .id(id)
+                .username("user" + id + "@studio.com")
+                .firstName("First")
+                .lastName("Last")
+                .admin(false)
+                .password("$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq")
+                .build();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
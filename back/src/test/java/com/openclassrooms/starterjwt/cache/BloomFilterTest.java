@@ -0,0 +1,72 @@
+package com.openclassrooms.starterjwt.cache;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+@DisplayName("BloomFilter unit tests")
+public class BloomFilterTest {
+
+    private static Instant startedAt;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("Inserted values should always be reported, absent ones rarely")
+    public void mightContain_ShouldHaveNoFalseNegativeAndFewFalsePositives() {
+        // Arrange
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        String[] inserted = new String[10_000];
+        for (int i = 0; i < inserted.length; i++) {
+            inserted[i] = UUID.randomUUID().toString();
+            bloomFilter.put(inserted[i]);
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloomFilter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        for (String value : inserted) {
+            assertThat(bloomFilter.mightContain(value)).isTrue();
+        }
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(bloomFilter.isSaturated()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Inserting more values than expected should mark the filter as saturated")
+    public void put_OverExpectedInsertions_ShouldSaturate() {
+        // Arrange
+        BloomFilter bloomFilter = new BloomFilter(2, 0.01);
+
+        // Act
+        bloomFilter.put("first");
+        bloomFilter.put("second");
+        bloomFilter.put("third");
+
+        // Assert
+        assertThat(bloomFilter.getInsertions()).isEqualTo(3);
+        assertThat(bloomFilter.isSaturated()).isTrue();
+    }
+}
@@ -0,0 +1,160 @@
+package com.openclassrooms.starterjwt.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+public class BoundedExpiringCacheTest {
+
+    private static Instant startedAt;
+
+    private MutableClock clock;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        clock = new MutableClock(1_000_000L);
+    }
+
+    @Test
+    @DisplayName("A cached entry should be returned until its expiration and counted as a hit")
+    public void get_BeforeExpiration_ShouldReturnValue() {
+        // Arrange
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, clock);
+        cache.put("key", "value", clock.millis() + 1000);
+
+        // Act
+        String value = cache.get("key");
+
+        // Assert
+        assertThat(value).isEqualTo("value");
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isZero();
+    }
+
+    @Test
+    @DisplayName("An expired entry should be evicted and counted as a miss")
+    public void get_AfterExpiration_ShouldReturnNull() {
+        // Arrange
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, clock);
+        cache.put("key", "value", clock.millis() + 1000);
+        clock.advance(1000);
+
+        // Act
+        String value = cache.get("key");
+
+        // Assert
+        assertThat(value).isNull();
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("The cache should never hold more entries than its maximum size")
+    public void put_WhenFull_ShouldEvictEntries() {
+        // Arrange
+        BoundedExpiringCache<Integer, Integer> cache = new BoundedExpiringCache<>(100, clock);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i, clock.millis() + 60000);
+        }
+
+        // Assert
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.getEvictions()).isGreaterThanOrEqualTo(900);
+    }
+
+    @Test
+    @DisplayName("Already expired values and a zero maximum size should not be cached")
+    public void put_ExpiredValueOrDisabledCache_ShouldNotStore() {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, clock);
+        BoundedExpiringCache<String, String> disabledCache = new BoundedExpiringCache<>(0, clock);
+
+        cache.put("key", "value", clock.millis());
+        disabledCache.put("key", "value", clock.millis() + 1000);
+
+        assertThat(cache.size()).isZero();
+        assertThat(disabledCache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Entries should be removed on invalidation")
+    public void invalidate_ShouldRemoveEntries() {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, clock);
+        cache.put("a", "1", clock.millis() + 1000);
+        cache.put("b", "2", clock.millis() + 1000);
+        cache.put("c", "3", clock.millis() + 1000);
+
+        cache.invalidate("a");
+        cache.invalidateIf("2"::equals);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("Cache statistics should be published to the meter registry")
+    public void bindTo_ShouldRegisterCacheMeters() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, clock);
+        cache.bindTo(meterRegistry, "test");
+
+        cache.put("key", "value", clock.millis() + 1000);
+        cache.get("key");
+        cache.get("unknown");
+
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
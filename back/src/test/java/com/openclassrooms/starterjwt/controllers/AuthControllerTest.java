@@ -6,8 +6,15 @@ import com.openclassrooms.starterjwt.payload.request.SignupRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.PasswordRehashService;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
+import com.openclassrooms.starterjwt.security.ratelimit.AuthRateLimiter;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.RegisteredEmailIndex;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -17,12 +24,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -32,7 +44,6 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @Log4j2
@@ -61,6 +72,16 @@ public class AuthControllerTest {
     PasswordEncoder passwordEncoder;
     @Mock
     UserRepository userRepository;
+    @Mock
+    PasswordRehashService passwordRehashService;
+    @Mock
+    AuthRateLimiter authRateLimiter;
+    @Mock
+    TokenRevocationService tokenRevocationService;
+    @Mock
+    OpaqueTokenService opaqueTokenService;
+    @Mock
+    RegisteredEmailIndex registeredEmailIndex;
     @InjectMocks
     AuthController authController;
 
@@ -75,7 +96,7 @@ public class AuthControllerTest {
         signupRequest.setLastName("Doe");
         User dummyUser = mock(User.class);
 
-        when(userRepository.existsByEmail(signupRequest.getEmail())).thenReturn(false);
+        when(registeredEmailIndex.mightBeRegistered(signupRequest.getEmail())).thenReturn(false);
         when(passwordEncoder.encode(signupRequest.getPassword())).thenReturn("passwordEncode");
         when(userRepository.save(any())).thenReturn(dummyUser);
 
@@ -87,7 +108,34 @@ public class AuthControllerTest {
         MessageResponse messageResponse = (MessageResponse) response.getBody();
         assertThat(messageResponse.getMessage()).isEqualTo("User registered successfully!");
 
+        // A definite miss of the email index should skip the existence query
+        verify(userRepository, never()).existsByEmail(any());
         verify(userRepository).save(any());
+        verify(registeredEmailIndex).add(signupRequest.getEmail());
+    }
+
+    @Test
+    @DisplayName("Register user racing another signup on the same email should fail on the unique constraint")
+    public void registerUser_withUniqueConstraintViolation_ShouldFail() {
+        // Arrange
+        SignupRequest signupRequest = new SignupRequest();
+        signupRequest.setEmail("john.doe@mail.com");
+        signupRequest.setPassword("123456");
+        signupRequest.setFirstName("John");
+        signupRequest.setLastName("Doe");
+
+        when(registeredEmailIndex.mightBeRegistered(signupRequest.getEmail())).thenReturn(false);
+        when(passwordEncoder.encode(signupRequest.getPassword())).thenReturn("passwordEncode");
+        when(userRepository.save(any())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+        // Act
+        ResponseEntity<?> response = authController.registerUser(signupRequest);
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        MessageResponse messageResponse = (MessageResponse) response.getBody();
+        assertThat(messageResponse.getMessage()).isEqualTo("Error: Email is already taken!");
+        verify(registeredEmailIndex, never()).add(any());
     }
 
     @Test
@@ -99,13 +147,12 @@ public class AuthControllerTest {
         loginRequest.setPassword("123456");
         Authentication mockAuth = mock(Authentication.class);
         UserDetailsImpl mockUserDetails = mock(UserDetailsImpl.class);
-        User dummyUser = mock(User.class);
 
+        when(authRateLimiter.tryAcquireEmail(loginRequest.getEmail())).thenReturn(true);
         when(authenticationManager.authenticate(any())).thenReturn(mockAuth);
         when(jwtUtils.generateJwtToken(any())).thenReturn("mockToken");
         when(mockAuth.getPrincipal()).thenReturn(mockUserDetails);
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(dummyUser));
-        when(dummyUser.isAdmin()).thenReturn(false);
+        when(mockUserDetails.getAdmin()).thenReturn(false);
         when(mockUserDetails.getUsername()).thenReturn("john.doe@mail.com");
         when(mockUserDetails.getId()).thenReturn(1L);
 
@@ -123,13 +170,99 @@ public class AuthControllerTest {
         assertThat(jwtResponse.getLastName()).isEqualTo(mockUserDetails.getLastName());
         assertThat(jwtResponse.getFirstName()).isEqualTo(mockUserDetails.getFirstName());
 
-        // Verify isAdmin
-        verify(userRepository).findByEmail("john.doe@mail.com");
-        assertFalse(dummyUser.isAdmin());
+        // Verify isAdmin comes from the authenticated principal
+        assertFalse(jwtResponse.getAdmin());
+        verifyNoInteractions(userRepository);
 
         verify(authenticationManager).authenticate(any());
-        verify(userRepository).findByEmail(anyString());
         verify(jwtUtils).generateJwtToken(any());
+        verify(passwordRehashService).rehashIfOutdated(mockUserDetails, loginRequest.getPassword());
+    }
+
+    @Test
+    @DisplayName("In opaque token mode, login should issue an opaque token instead of a JWT")
+    public void authenticateUser_InOpaqueMode_ShouldIssueOpaqueToken() {
+        // Arrange
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("john.doe@mail.com");
+        loginRequest.setPassword("123456");
+        Authentication mockAuth = mock(Authentication.class);
+        UserDetailsImpl mockUserDetails = mock(UserDetailsImpl.class);
+
+        when(authRateLimiter.tryAcquireEmail(loginRequest.getEmail())).thenReturn(true);
+        when(authenticationManager.authenticate(any())).thenReturn(mockAuth);
+        when(mockAuth.getPrincipal()).thenReturn(mockUserDetails);
+        when(opaqueTokenService.isEnabled()).thenReturn(true);
+        when(opaqueTokenService.issue(mockUserDetails)).thenReturn("opaqueToken");
+
+        // Act
+        ResponseEntity<?> response = authController.authenticateUser(loginRequest);
+
+        // Assert
+        JwtResponse jwtResponse = (JwtResponse) response.getBody();
+        assertThat(jwtResponse.getToken()).isEqualTo("opaqueToken");
+        verifyNoInteractions(jwtUtils);
+    }
+
+    @Test
+    @DisplayName("Login should issue a single user query through the real authentication chain")
+    public void authenticateUser_ShouldQueryTheUserOnlyOnce() {
+        // Arrange
+        BCryptPasswordEncoder bcryptPasswordEncoder = new BCryptPasswordEncoder(4);
+        User user = new User("john.doe@mail.com", "Doe", "John", bcryptPasswordEncoder.encode("123456"), true);
+        user.setId(1L);
+        when(userRepository.findByEmail("john.doe@mail.com")).thenReturn(Optional.of(user));
+        when(authRateLimiter.tryAcquireEmail("john.doe@mail.com")).thenReturn(true);
+
+        // User details cache disabled, so that every query of the login path reaches the repository
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl(userRepository, 0, 0L, new SimpleMeterRegistry());
+        DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(bcryptPasswordEncoder);
+
+        JwtUtils realJwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(realJwtUtils, "jwtSecret", "jwtSecretKey");
+        ReflectionTestUtils.setField(realJwtUtils, "jwtExpirationMs", 3600000);
+        realJwtUtils.init();
+
+        AuthController loginController = new AuthController(new ProviderManager(authenticationProvider),
+                bcryptPasswordEncoder, realJwtUtils, userRepository, passwordRehashService, authRateLimiter, tokenRevocationService, opaqueTokenService, registeredEmailIndex);
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("john.doe@mail.com");
+        loginRequest.setPassword("123456");
+
+        // Act
+        ResponseEntity<?> response = loginController.authenticateUser(loginRequest);
+
+        // Assert
+        JwtResponse jwtResponse = (JwtResponse) response.getBody();
+        assertThat(jwtResponse.getId()).isEqualTo(1L);
+        assertThat(jwtResponse.getFirstName()).isEqualTo("John");
+        assertThat(jwtResponse.getLastName()).isEqualTo("Doe");
+        assertThat(jwtResponse.getAdmin()).isTrue();
+        verify(userRepository, times(1)).findByEmail("john.doe@mail.com");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("Login attempts over the email rate should be refused before authentication")
+    public void authenticateUser_whenEmailRateExceeded_ShouldReturnTooManyRequests() {
+        // Arrange
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail("john.doe@mail.com");
+        loginRequest.setPassword("123456");
+
+        when(authRateLimiter.tryAcquireEmail(loginRequest.getEmail())).thenReturn(false);
+
+        // Act
+        ResponseEntity<?> response = authController.authenticateUser(loginRequest);
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        MessageResponse messageResponse = (MessageResponse) response.getBody();
+        assertThat(messageResponse.getMessage()).isEqualTo("Error: Too many login attempts!");
+        verifyNoInteractions(authenticationManager, jwtUtils, userRepository, passwordRehashService);
     }
 
     @Test
@@ -141,6 +274,7 @@ public class AuthControllerTest {
         loginRequest.setPassword("wrongpassword");
 
         // Act
+        when(authRateLimiter.tryAcquireEmail(loginRequest.getEmail())).thenReturn(true);
         when(authenticationManager.authenticate(any()))
                 .thenThrow(new BadCredentialsException("Invalid credentials"));
 
@@ -164,6 +298,7 @@ public class AuthControllerTest {
         signupRequest.setFirstName("John");
         signupRequest.setLastName("Doe");
 
+        when(registeredEmailIndex.mightBeRegistered(signupRequest.getEmail())).thenReturn(true);
         when(userRepository.existsByEmail(signupRequest.getEmail())).thenReturn(true);
 
         // Act
@@ -174,4 +309,32 @@ public class AuthControllerTest {
         MessageResponse messageResponse = (MessageResponse) response.getBody();
         assertThat(messageResponse.getMessage()).isEqualTo("Error: Email is already taken!");
     }
+
+    @Test
+    @DisplayName("Logout should revoke the token of the request")
+    public void logoutUser_WithAuthenticatedToken_ShouldRevokeIt() {
+        // Arrange
+        when(tokenRevocationService.revokeCurrentToken()).thenReturn(true);
+
+        // Act
+        ResponseEntity<?> response = authController.logoutUser();
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        MessageResponse messageResponse = (MessageResponse) response.getBody();
+        assertThat(messageResponse.getMessage()).isEqualTo("Logged out successfully!");
+    }
+
+    @Test
+    @DisplayName("Logout without a valid token should return UNAUTHORIZED")
+    public void logoutUser_WithoutToken_ShouldReturnUnauthorized() {
+        // Arrange
+        when(tokenRevocationService.revokeCurrentToken()).thenReturn(false);
+
+        // Act
+        ResponseEntity<?> response = authController.logoutUser();
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
 }
@@ -1,8 +1,16 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.SessionPageDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.UnknownReferenceException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.WaitlistResponse;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionExportService;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.*;
@@ -11,15 +19,22 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @Log4j2
@@ -44,11 +59,16 @@ public class SessionControllerTest {
     SessionMapper sessionMapper;
     @Mock
     SessionService sessionService;
+    @Mock
+    SessionExportService sessionExportService;
     SessionController sessionController;
 
     @BeforeEach
     public void setup() {
-        this.sessionController = new SessionController(sessionService, sessionMapper);
+        this.sessionController = new SessionController(sessionService, sessionMapper, sessionExportService);
+        ReflectionTestUtils.setField(sessionController, "unpagedListing", true);
+        ReflectionTestUtils.setField(sessionController, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(sessionController, "maxPageSize", 100);
     }
 
     @AfterEach
@@ -75,6 +95,42 @@ public class SessionControllerTest {
         verify(sessionMapper, times(2)).toDto(mockSession);
     }
 
+    @Test
+    @DisplayName("Find a session by ID through the DTO projection should not map any entity")
+    public void findById_WithDetailProjection_ShouldReturnProjectedDto() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "detailProjection", true);
+        SessionDto sessionDto = new SessionDto(1L, "Session", new Date(), 1L, "Description", null, null, null);
+        when(sessionService.getDtoById(1L)).thenReturn(sessionDto);
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.findById("1");
+
+        // Assert
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).isEqualTo(sessionDto);
+        verify(sessionService, never()).getById(anyLong());
+        verifyNoInteractions(sessionMapper);
+    }
+
+    @Test
+    @DisplayName("Find all sessions through the DTO projection should not map any entity")
+    public void findAll_WithListingProjection_ShouldReturnProjectedDtos() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "listingProjection", true);
+        List<SessionDto> sessions = Collections.singletonList(
+                new SessionDto(1L, "Session", new Date(), 1L, "Description", null, null, null));
+        when(sessionService.findAllDtos()).thenReturn(sessions);
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.findAll(new SessionFilter(), null, null);
+
+        // Assert
+        assertThat(responseEntity.getBody()).isEqualTo(sessions);
+        verify(sessionService, never()).findAll();
+        verifyNoInteractions(sessionMapper);
+    }
+
     @Test
     @DisplayName("If cannot retrieve the session by its ID should return http status NOT_FOUND")
     public void findById_SessionNotFound_ShouldReturnNotFound() {
@@ -111,7 +167,7 @@ public class SessionControllerTest {
         when(sessionService.findAll()).thenReturn(mockSessions);
 
         // Act
-        ResponseEntity<?> responseEntity = sessionController.findAll();
+        ResponseEntity<?> responseEntity = sessionController.findAll(new SessionFilter(), null, null);
 
         // Assert
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -119,6 +175,116 @@ public class SessionControllerTest {
         verify(sessionService).findAll();
     }
 
+    @Test
+    @DisplayName("Find all sessions with a limit should return the first page and the cursor of the following one")
+    public void findAll_WithLimit_ShouldReturnFirstPageAndNextCursor() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "listingProjection", true);
+        List<SessionDto> sessions = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            sessions.add(new SessionDto(id, "Session", new Date(id * 1000), 1L, "Description", null, null, null));
+        }
+        when(sessionService.findDtoPage(any(SessionFilter.class), isNull(), eq(3))).thenReturn(sessions);
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.findAll(new SessionFilter(), null, 2);
+
+        // Assert
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        SessionPageDto page = (SessionPageDto) responseEntity.getBody();
+        SessionCursor nextCursor = SessionCursor.decode(page.getNextCursor());
+        assertThat(nextCursor.getId()).isEqualTo(2L);
+        assertThat(nextCursor.getDate()).isEqualTo(new Date(2000));
+        assertThat(page.getSessions()).isEqualTo(sessions.subList(0, 2));
+        verify(sessionService, never()).findAllDtos();
+        verifyNoInteractions(sessionMapper);
+    }
+
+    @Test
+    @DisplayName("Find all sessions from a cursor should resume after it and return no cursor on the last page")
+    public void findAll_WithCursorOnLastPage_ShouldReturnNoNextCursor() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "listingProjection", true);
+        String cursor = new SessionCursor(new Date(2000), 2L).encode();
+        List<SessionDto> sessions = Collections.singletonList(
+                new SessionDto(3L, "Session", new Date(3000), 1L, "Description", null, null, null));
+        when(sessionService.findDtoPage(any(SessionFilter.class), any(SessionCursor.class), eq(21))).thenReturn(sessions);
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.findAll(new SessionFilter(), cursor, null);
+
+        // Assert
+        assertThat(((SessionPageDto) responseEntity.getBody()).getNextCursor()).isNull();
+        verify(sessionService).findDtoPage(any(SessionFilter.class), argThat(after -> after.getId().equals(2L)), eq(21));
+    }
+
+    @Test
+    @DisplayName("Find all sessions should cap the page size, and return a first page when the unpaginated listing is disabled")
+    public void findAll_WithoutUnpagedListing_ShouldCapPageSize() {
+        // Arrange
+        ReflectionTestUtils.setField(sessionController, "unpagedListing", false);
+
+        // Act
+        sessionController.findAll(new SessionFilter(), null, null);
+        sessionController.findAll(new SessionFilter(), null, 5000);
+
+        // Assert
+        verify(sessionService).findPage(any(SessionFilter.class), isNull(), eq(21));
+        verify(sessionService).findPage(any(SessionFilter.class), isNull(), eq(101));
+        verify(sessionService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Find all sessions with a filter should return a page even when the unpaginated listing is enabled")
+    public void findAll_WithFilter_ShouldReturnFilteredPage() {
+        // Arrange
+        SessionFilter filter = new SessionFilter();
+        filter.setTeacherId(1L);
+        filter.setHasFreeSeats(true);
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.findAll(filter, null, null);
+
+        // Assert
+        assertThat(responseEntity.getBody()).isInstanceOf(SessionPageDto.class);
+        verify(sessionService).findPage(filter, null, 21);
+        verify(sessionService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Find all sessions with a malformed cursor or a non positive limit should be a bad request")
+    public void findAll_WithInvalidParameters_ShouldBeBadRequest() {
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.findAll(new SessionFilter(), null, 0);
+
+        // Assert
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThatThrownBy(() -> sessionController.findAll(new SessionFilter(), "not a cursor", null)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> sessionController.findAll(new SessionFilter(), "bm90LWEtY3Vyc29y", null)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    @DisplayName("Export sessions should stream the requested format, and reject an unknown one")
+    public void export_ShouldStreamSupportedFormats() throws Exception {
+        // Arrange
+        when(sessionExportService.supports(anyString())).thenAnswer(invocation -> !"xml".equals(invocation.getArgument(0)));
+
+        // Act
+        ResponseEntity<?> csv = sessionController.export("csv");
+        ResponseEntity<?> jsonLines = sessionController.export("jsonl");
+        ResponseEntity<?> xml = sessionController.export("xml");
+
+        // Assert
+        assertThat(csv.getHeaders().getContentType().toString()).isEqualTo("text/csv;charset=UTF-8");
+        assertThat(jsonLines.getHeaders().getContentType().toString()).isEqualTo("application/x-ndjson;charset=UTF-8");
+        assertThat(xml.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        ((StreamingResponseBody) csv.getBody()).writeTo(new ByteArrayOutputStream());
+        verify(sessionExportService).exportCsv(any());
+        verify(sessionExportService, never()).exportJsonLines(any());
+        verifyNoInteractions(sessionMapper);
+    }
+
     @Test
     @DisplayName("Create session should return response with http status = OK")
     public void create_ShouldReturnResponseOk() {
@@ -129,7 +295,9 @@ public class SessionControllerTest {
                 new Date(),
                 1L,
                 "Description of the session",
+                10,
                 Arrays.asList(1L,2L),
+                2,
                 LocalDateTime.now(),
                 LocalDateTime.now()
         );
@@ -159,7 +327,9 @@ public class SessionControllerTest {
                 new Date(),
                 1L,
                 "Description of the updated session",
+                10,
                 Arrays.asList(1L, 2L),
+                2,
                 LocalDateTime.now(),
                 LocalDateTime.now()
         );
@@ -174,6 +344,23 @@ public class SessionControllerTest {
         verify(sessionService).update(Long.parseLong(strId), sessionMapper.toEntity(sessionDto));
     }
 
+    @Test
+    @DisplayName("Create a session with unknown participants should return bad request with the unknown ids")
+    public void create_WithUnknownUsers_ShouldReturnBadRequest() {
+        // Arrange
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setUsers(Arrays.asList(1L, 99L));
+        when(sessionMapper.toEntity(sessionDto)).thenThrow(new UnknownReferenceException("Error: Unknown user ids [99]!"));
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.create(sessionDto);
+
+        // Assert
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(((MessageResponse) responseEntity.getBody()).getMessage()).isEqualTo("Error: Unknown user ids [99]!");
+        verifyNoInteractions(sessionService);
+    }
+
 
 
     @Test
@@ -217,6 +404,36 @@ public class SessionControllerTest {
         verify(sessionService).participate(Long.parseLong("1"), Long.parseLong("1"));
     }
 
+    @Test
+    @DisplayName("Participate to a full session should return http status = ACCEPTED with the waitlist position")
+    public void participate_WhenSessionFull_ShouldReturnAcceptedWithPosition() {
+        // Arrange
+        when(sessionService.participate(1L, 2L)).thenReturn(Optional.of(4));
+
+        // Act
+        ResponseEntity<?> responseEntity = sessionController.participate("1", "2");
+
+        // Assert
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(((WaitlistResponse) responseEntity.getBody()).getPosition()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("The waitlist position should be found for a waiting user only")
+    public void findWaitlistPosition_ShouldReturnPositionOrNotFound() {
+        // Arrange
+        when(sessionService.findWaitlistPosition(1L, 2L)).thenReturn(Optional.of(1));
+        when(sessionService.findWaitlistPosition(1L, 3L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<?> waiting = sessionController.findWaitlistPosition("1", "2");
+        ResponseEntity<?> notWaiting = sessionController.findWaitlistPosition("1", "3");
+
+        // Assert
+        assertThat(((WaitlistResponse) waiting.getBody()).getPosition()).isEqualTo(1);
+        assertThat(notWaiting.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
 
     @Test
     @DisplayName("Unparticipate to a session should return response with http status = OK")
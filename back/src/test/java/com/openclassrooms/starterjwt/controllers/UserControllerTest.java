@@ -3,6 +3,11 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.mapper.UserMapper;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
+import com.openclassrooms.starterjwt.payload.response.UserImportResponse;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.UserImportService;
 import com.openclassrooms.starterjwt.services.UserService;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.*;
@@ -15,6 +20,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -30,6 +38,12 @@ public class UserControllerTest {
     private UserMapper userMapper;
     @Mock
     private UserService userService;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+    @Mock
+    private OpaqueTokenService opaqueTokenService;
+    @Mock
+    private UserImportService userImportService;
     private UserController userController;
 
     @BeforeAll
@@ -46,7 +60,7 @@ public class UserControllerTest {
 
     @BeforeEach
     public void setup() {
-        this.userController = new UserController(userService, userMapper);
+        this.userController = new UserController(userService, userMapper, tokenRevocationService, opaqueTokenService, userImportService);
     }
 
     @AfterEach
@@ -121,6 +135,7 @@ public class UserControllerTest {
         // Assert
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         verify(userService).delete(Long.parseLong(strId));
+        verify(tokenRevocationService).revokeCurrentToken();
     }
 
     @Test
@@ -169,4 +184,39 @@ public class UserControllerTest {
         // Assert
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
     }
+
+    @Test
+    @DisplayName("Import users as an admin should return the import report with http status OK")
+    public void importJson_AsAdmin_ShouldReturnReport() throws Exception {
+        // Arrange
+        InputStream body = new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+        UserImportResponse importResponse = new UserImportResponse();
+        Authentication mockAuthentication = mock(Authentication.class);
+        when(mockAuthentication.getPrincipal()).thenReturn(UserDetailsImpl.builder().admin(true).build());
+        SecurityContextHolder.getContext().setAuthentication(mockAuthentication);
+        when(userImportService.importJson(body)).thenReturn(importResponse);
+
+        // Act
+        ResponseEntity<?> response = userController.importJson(body);
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(importResponse);
+    }
+
+    @Test
+    @DisplayName("Import users as a non admin user should return a response with http status FORBIDDEN")
+    public void importCsv_AsNonAdmin_ShouldReturnForbidden() throws Exception {
+        // Arrange
+        Authentication mockAuthentication = mock(Authentication.class);
+        when(mockAuthentication.getPrincipal()).thenReturn(UserDetailsImpl.builder().admin(false).build());
+        SecurityContextHolder.getContext().setAuthentication(mockAuthentication);
+
+        // Act
+        ResponseEntity<?> response = userController.importCsv(new ByteArrayInputStream(new byte[0]));
+
+        // Assert
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(userImportService);
+    }
 }
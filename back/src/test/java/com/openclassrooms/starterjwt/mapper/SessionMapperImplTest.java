@@ -84,8 +84,8 @@ public class SessionMapperImplTest {
         sessionDto.setTeacher_id(teacher.getId());
         sessionDto.setUsers(Arrays.asList(user.getId()));
 
-        when(teacherService.findById(teacher.getId())).thenReturn(teacher);
-        when(userService.findById(user.getId())).thenReturn(user);
+        when(teacherService.getExisting(teacher.getId())).thenReturn(teacher);
+        when(userService.getReferences(Arrays.asList(user.getId()))).thenReturn(Arrays.asList(user));
 
         // Act
         Session session = sessionMapper.toEntity(sessionDto);
@@ -114,8 +114,8 @@ public class SessionMapperImplTest {
         List<SessionDto> sessionDtoList = new ArrayList<SessionDto>();
         sessionDtoList.add(sessionDto);
 
-        when(teacherService.findById(teacher.getId())).thenReturn(teacher);
-        when(userService.findById(user.getId())).thenReturn(user);
+        when(teacherService.getExisting(teacher.getId())).thenReturn(teacher);
+        when(userService.getReferences(Arrays.asList(user.getId()))).thenReturn(Arrays.asList(user));
 
         // Act
         List<Session> sessionList = sessionMapper.toEntity(sessionDtoList);
@@ -0,0 +1,159 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SequenceIds;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Statements issued to resolve the teacher and participants of a created or updated session, per id as the mapper
+ * formerly did and through {@link SessionMapper#toEntity(SessionDto)}, for up to {@value #PARTICIPANTS} participants.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Log4j2
+@DisplayName("Session mapper reference resolution Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionMapperReferenceIT {
+    private static final String EMAIL_SUFFIX = "@session-mapper-reference.test";
+
+    private static final int PARTICIPANTS = 200;
+
+    private static final int ITERATIONS = 20;
+
+    private static Instant startedAt;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private TeacherService teacherService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private List<Long> userIds;
+
+    private Long teacherId;
+
+    @BeforeAll
+    public void seedUsers() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        long firstUserId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "USERS_SEQ", PARTICIPANTS);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            users.add(new Object[]{firstUserId + i, "user" + i + EMAIL_SUFFIX});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (id, first_name, last_name, admin, email, password) "
+                + "VALUES (?, 'Mapper', 'Reference', false, ?, 'unused')", users);
+        userIds = jdbcTemplate.queryForList("SELECT id FROM USERS WHERE email LIKE ? ORDER BY id", Long.class, "%" + EMAIL_SUFFIX);
+        teacherId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM TEACHERS", Long.class);
+    }
+
+    @AfterAll
+    public void removeUsers() {
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE ?", "%" + EMAIL_SUFFIX);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("The mapper should resolve any number of participants with the same two statements")
+    public void toEntity_ShouldNotQueryPerParticipant() {
+        for (int participants : new int[]{1, 20, PARTICIPANTS}) {
+            SessionDto sessionDto = sessionDto(participants);
+
+            long perIdStatements = statements(sessionDto, this::perIdLookup);
+            long batchedStatements = statements(sessionDto, sessionMapper::toEntity);
+
+            assertEquals(1 + participants, perIdStatements);
+            assertEquals(2, batchedStatements);
+
+            log.info("{} participants: {} statements and {} µs per id, {} statements and {} µs batched",
+                    participants, perIdStatements, measure(sessionDto, this::perIdLookup),
+                    batchedStatements, measure(sessionDto, sessionMapper::toEntity));
+        }
+    }
+
+    /**
+     * The mapping expressions as they were before the batched resolution.
+     */
+    private Session perIdLookup(SessionDto sessionDto) {
+        Session session = Session.builder()
+                .name(sessionDto.getName())
+                .date(sessionDto.getDate())
+                .description(sessionDto.getDescription())
+                .build();
+        session.setTeacher(teacherService.findById(sessionDto.getTeacher_id()));
+        session.setUsers(sessionDto.getUsers().stream()
+                .map(userService::findById)
+                .collect(Collectors.toList()));
+        return session;
+    }
+
+    private SessionDto sessionDto(int participants) {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Session");
+        sessionDto.setDate(new Date());
+        sessionDto.setDescription("Description");
+        sessionDto.setTeacher_id(teacherId);
+        sessionDto.setUsers(new ArrayList<>(userIds.subList(0, participants)));
+        return sessionDto;
+    }
+
+    /**
+     * Prepared statements of one resolution, in its own transaction as in the controller.
+     */
+    private long statements(SessionDto sessionDto, Function<SessionDto, Session> resolve) {
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(status -> resolve.apply(sessionDto));
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Average microseconds of one resolution, after a warm up run.
+     */
+    private long measure(SessionDto sessionDto, Function<SessionDto, Session> resolve) {
+        transactionTemplate.executeWithoutResult(status -> resolve.apply(sessionDto));
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            transactionTemplate.executeWithoutResult(status -> resolve.apply(sessionDto));
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin) / ITERATIONS;
+    }
+}
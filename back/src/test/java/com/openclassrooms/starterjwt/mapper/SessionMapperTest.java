@@ -0,0 +1,118 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.SessionService;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.collection.internal.PersistentBag;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@DisplayName("SessionMapper participant mapping unit tests")
+@ExtendWith(MockitoExtension.class)
+public class SessionMapperTest {
+    private static Instant startedAt;
+
+    @Mock
+    private SessionService sessionService;
+
+    @InjectMocks
+    private SessionMapper sessionMapper = Mappers.getMapper(SessionMapper.class);
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("ToDto should take the participant ids from the projection when the users are not loaded")
+    public void toDto_WithUnloadedUsers_ShouldUseProjection() {
+        // Arrange
+        Session session = lazySession(1L);
+        when(sessionService.findParticipantIds(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonMap(1L, Arrays.asList(3L, 4L)));
+
+        // Act
+        SessionDto sessionDto = sessionMapper.toDto(session);
+
+        // Assert
+        assertThat(sessionDto.getUsers()).containsExactly(3L, 4L);
+        assertThat(sessionDto.getParticipantCount()).isEqualTo(2);
+        assertThat(sessionDto.getTeacher_id()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("ToDto should use the users already in memory without any query")
+    public void toDto_WithLoadedUsers_ShouldNotQuery() {
+        // Arrange
+        User user = new User();
+        user.setId(5L);
+        Session session = Session.builder().id(1L).users(Collections.singletonList(user)).build();
+
+        // Act
+        SessionDto sessionDto = sessionMapper.toDto(session);
+
+        // Assert
+        assertThat(sessionDto.getUsers()).containsExactly(5L);
+        assertThat(sessionDto.getParticipantCount()).isEqualTo(1);
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    @DisplayName("ToDto of a list should load the participants of every session with a single query")
+    public void toDto_List_ShouldQueryParticipantsOnce() {
+        // Arrange
+        List<Session> sessions = Arrays.asList(lazySession(1L), lazySession(2L));
+        Map<Long, List<Long>> participantIds = new HashMap<>();
+        participantIds.put(1L, Collections.singletonList(3L));
+        participantIds.put(2L, Collections.emptyList());
+        when(sessionService.findParticipantIds(Arrays.asList(1L, 2L))).thenReturn(participantIds);
+
+        // Act
+        List<SessionDto> sessionDtos = sessionMapper.toDto(sessions);
+
+        // Assert
+        assertThat(sessionDtos).extracting(SessionDto::getParticipantCount).containsExactly(1, 0);
+        verify(sessionService, times(1)).findParticipantIds(any());
+    }
+
+    private static Session lazySession(Long id) {
+        return Session.builder()
+                .id(id)
+                .name("Session " + id)
+                .date(new Date())
+                .description("Session description")
+                .teacher(Teacher.builder().id(1L).build())
+                .users(uninitializedUsers())
+                .build();
+    }
+
+    /**
+     * Lazy participants as Hibernate leaves them on a fetched session; Hibernate 5 collections are raw types.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<User> uninitializedUsers() {
+        return (List<User>) new PersistentBag();
+    }
+}
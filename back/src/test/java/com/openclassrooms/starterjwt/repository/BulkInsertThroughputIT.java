@@ -0,0 +1,130 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.Session;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Bulk insert throughput of {@value #ROWS} teachers: one INSERT and generated key read per row as with the former
+ * IDENTITY generation, then Hibernate with pooled ids, without and with JDBC batching.
+ * TEACHERS has no AUTO_INCREMENT anymore, so the IDENTITY path writes to a copy of the table which keeps it.
+ */
+@SpringBootTest
+@Log4j2
+@DisplayName("Bulk insert throughput Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BulkInsertThroughputIT {
+    private static final String LAST_NAME = "BulkInsertIT";
+
+    private static final String IDENTITY_TABLE = "TEACHERS_IDENTITY_IT";
+
+    private static final int ROWS = 10_000;
+
+    private static Instant startedAt;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeAll
+    public void createIdentityTable() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + IDENTITY_TABLE + " LIKE TEACHERS");
+        jdbcTemplate.execute("ALTER TABLE " + IDENTITY_TABLE + " MODIFY id INT NOT NULL AUTO_INCREMENT");
+    }
+
+    @AfterEach
+    public void removeTeachers() {
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name = ?", LAST_NAME);
+        jdbcTemplate.update("DELETE FROM " + IDENTITY_TABLE + " WHERE last_name = ?", LAST_NAME);
+    }
+
+    @AfterAll
+    public void dropIdentityTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + IDENTITY_TABLE);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("Identity-style inserts should round trip once per row")
+    public void insert_IdentityStyle_ShouldReportThroughput() {
+        long begin = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            String firstName = "Teacher " + i;
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO " + IDENTITY_TABLE + " (last_name, first_name) VALUES (?, ?)",
+                        Statement.RETURN_GENERATED_KEYS);
+                statement.setString(1, LAST_NAME);
+                statement.setString(2, firstName);
+                return statement;
+            }, new GeneratedKeyHolder());
+        }
+        report("identity, one statement per row", IDENTITY_TABLE, begin);
+    }
+
+    @Test
+    @DisplayName("Pooled ids without JDBC batching should still send one statement per row")
+    public void insert_PooledIdsUnbatched_ShouldReportThroughput() {
+        long begin = System.nanoTime();
+        persistTeachers(1);
+        report("pooled ids, batching disabled", "TEACHERS", begin);
+    }
+
+    @Test
+    @DisplayName("Pooled ids with JDBC batching should send multi-row inserts")
+    public void insert_PooledIdsBatched_ShouldReportThroughput() {
+        long begin = System.nanoTime();
+        persistTeachers(null);
+        report("pooled ids, batched", "TEACHERS", begin);
+    }
+
+    /**
+     * Persists the teachers in one transaction, with the given JDBC batch size or the configured one when null.
+     */
+    private void persistTeachers(Integer jdbcBatchSize) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcBatchSize != null) {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            }
+            for (int i = 0; i < ROWS; i++) {
+                entityManager.persist(Teacher.builder().lastName(LAST_NAME).firstName("Teacher " + i).build());
+                if (i % 500 == 499) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+
+    private void report(String path, String table, long begin) {
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        assertEquals(ROWS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE last_name = ?", Integer.class, LAST_NAME));
+        log.info("{}: {} rows in {} ms ({} rows/s)", path, ROWS, elapsedMs, ROWS * 1000L / elapsedMs);
+    }
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reserves ids from the sequence tables of the pooled generators, for test data inserted with plain SQL.
+ * The ids of USERS, TEACHERS and SESSIONS have no AUTO_INCREMENT, so every insert must take its id from there.
+ */
+public final class SequenceIds {
+    private SequenceIds() {
+    }
+
+    /**
+     * Moves the sequence past count ids, in the row locking transaction Hibernate also uses for its next block.
+     *
+     * @return the first of the count reserved ids
+     */
+    public static long reserve(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               String sequenceTable, int count) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("UPDATE " + sequenceTable + " SET next_val = next_val + ?", count);
+            return jdbcTemplate.queryForObject("SELECT next_val FROM " + sequenceTable, Long.class) - count;
+        });
+    }
+}
@@ -0,0 +1,217 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Seeds a few thousand sessions and participations, then checks with EXPLAIN that the SQL Hibernate generates for
+ * every listing filter, through findPage and findDtoPage, is served by one of the SESSIONS or PARTICIPATE indexes
+ * rather than a full table scan. The statements are captured by a {@link StatementInspector} registered for this test.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.openclassrooms.starterjwt.repository.SessionRepositoryIT$CapturingStatementInspector")
+@Log4j2
+@DisplayName("SessionRepository filters Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionRepositoryIT {
+    private static final String NAME_PREFIX = "Index IT ";
+
+    private static final String EMAIL = "participant@session-repository.test";
+
+    private static final int SESSION_COUNT = 5000;
+
+    private static final int PAGE_SIZE = 21;
+
+    private static final Timestamp FROM = Timestamp.from(Instant.parse("2030-01-01T00:00:00Z"));
+
+    private static final Timestamp TO = Timestamp.from(Instant.parse("2030-01-08T00:00:00Z"));
+
+    private static Instant startedAt;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    private long userId;
+
+    private long firstTeacherId;
+
+    @BeforeAll
+    public void seedSessions() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        userId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "USERS_SEQ", 1);
+        jdbcTemplate.update("INSERT INTO USERS (id, first_name, last_name, admin, email, password) "
+                + "VALUES (?, 'Index', 'Test', false, ?, 'unused')", userId, EMAIL);
+        firstTeacherId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "TEACHERS_SEQ", 2);
+        for (int i = 0; i < 2; i++) {
+            jdbcTemplate.update("INSERT INTO TEACHERS (id, first_name, last_name) VALUES (?, 'Teacher', ?)",
+                    firstTeacherId + i, NAME_PREFIX + i);
+        }
+
+        long firstSessionId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "SESSIONS_SEQ", SESSION_COUNT);
+        List<Object[]> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSION_COUNT; i++) {
+            Timestamp date = Timestamp.from(Instant.parse("2029-01-01T00:00:00Z").plus(Duration.ofHours(4L * i)));
+            sessions.add(new Object[]{firstSessionId + i, NAME_PREFIX + i, "Index test session", date, i % 10 + 1,
+                    firstTeacherId + (i % 2)});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO SESSIONS (id, name, description, date, capacity, teacher_id) VALUES (?, ?, ?, ?, ?, ?)", sessions);
+        jdbcTemplate.update("INSERT INTO PARTICIPATE (user_id, session_id) "
+                + "SELECT ?, id FROM SESSIONS WHERE name LIKE ? AND MOD(id, 3) = 0", userId, NAME_PREFIX + "%");
+        jdbcTemplate.execute("ANALYZE TABLE SESSIONS, PARTICIPATE");
+    }
+
+    @AfterAll
+    public void removeSessions() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name LIKE ?", NAME_PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE last_name LIKE ?", NAME_PREFIX + "%");
+        jdbcTemplate.update("DELETE FROM USERS WHERE id = ?", userId);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("The date window filter should use the date index")
+    public void dateWindow_ShouldUseDateIndex() {
+        SessionFilter filter = new SessionFilter();
+        filter.setFrom(FROM);
+        filter.setTo(TO);
+
+        assertListingQueriesUseIndex(filter, "idx_sessions_date_id", FROM, TO);
+    }
+
+    @Test
+    @DisplayName("The teacher filter should use the teacher and date index")
+    public void teacher_ShouldUseTeacherDateIndex() {
+        SessionFilter filter = new SessionFilter();
+        filter.setFrom(FROM);
+        filter.setTeacherId(firstTeacherId + 1);
+
+        // Numeric criteria literals are inlined by Hibernate, only the date is bound
+        assertListingQueriesUseIndex(filter, "idx_sessions_teacher_id_date", FROM);
+    }
+
+    @Test
+    @DisplayName("The participant filter should use the user and session index of the join table")
+    public void participant_ShouldUseParticipateIndex() {
+        SessionFilter filter = new SessionFilter();
+        filter.setParticipantId(userId);
+
+        assertListingQueriesUseIndex(filter, "idx_participate_user_id_session_id");
+    }
+
+    @Test
+    @DisplayName("The free seats filter should compare the seat counter while reading the date index")
+    public void freeSeats_ShouldReadDateIndex() {
+        SessionFilter filter = new SessionFilter();
+        filter.setFrom(FROM);
+        filter.setHasFreeSeats(true);
+
+        assertListingQueriesUseIndex(filter, "idx_sessions_date_id", FROM);
+    }
+
+    @Test
+    @DisplayName("Every filter combined should return only matching sessions in (date, id) order")
+    public void findPage_WithFilter_ShouldReturnMatchingSessions() {
+        SessionFilter filter = new SessionFilter();
+        filter.setFrom(FROM);
+        filter.setTeacherId(firstTeacherId + 1);
+        filter.setHasFreeSeats(true);
+        filter.setParticipantId(userId);
+
+        List<Session> sessions = sessionRepository.findPage(SessionSpecifications.matching(filter), PAGE_SIZE);
+
+        assertFalse(sessions.isEmpty());
+        Date previous = null;
+        for (Session session : sessions) {
+            assertEquals(firstTeacherId + 1, session.getTeacher().getId());
+            assertFalse(session.getDate().before(FROM));
+            assertTrue(previous == null || !session.getDate().before(previous));
+            previous = session.getDate();
+        }
+    }
+
+    /**
+     * Runs the filter through the entity and DTO listings, then explains the listing statement each one generated.
+     * The bound parameters are the given ones followed by the page size.
+     */
+    private void assertListingQueriesUseIndex(SessionFilter filter, String expectedIndex, Object... parameters) {
+        Object[] boundParameters = Arrays.copyOf(parameters, parameters.length + 1);
+        boundParameters[parameters.length] = PAGE_SIZE;
+
+        String entitySql = capturedListingQuery(
+                () -> sessionRepository.findPage(SessionSpecifications.matching(filter), PAGE_SIZE));
+        assertUsesIndex(entitySql, expectedIndex, boundParameters);
+
+        String dtoSql = capturedListingQuery(
+                () -> sessionRepository.findDtoPage(SessionSpecifications.matching(filter), PAGE_SIZE));
+        assertUsesIndex(dtoSql, expectedIndex, boundParameters);
+    }
+
+    /**
+     * The first statement reading SESSIONS, ahead of the teachers Hibernate may load for the entities.
+     */
+    private String capturedListingQuery(Runnable listing) {
+        CapturingStatementInspector.STATEMENTS.clear();
+        listing.run();
+        return CapturingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.toUpperCase(Locale.ROOT).contains("FROM SESSIONS"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No listing statement captured"));
+    }
+
+    /**
+     * Every table access of the plan must go through an index, the expected one when given.
+     */
+    private void assertUsesIndex(String sql, String expectedIndex, Object... parameters) {
+        assertEquals(parameters.length, sql.chars().filter(character -> character == '?').count(),
+                "Unexpected parameters in " + sql);
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+        log.info("Plan of {} : {}", sql, plan);
+
+        for (Map<String, Object> step : plan) {
+            assertNotEquals("ALL", step.get("type"), "Full scan of " + step.get("table"));
+        }
+        if (expectedIndex != null) {
+            assertTrue(plan.stream().anyMatch(step -> expectedIndex.equals(step.get("key"))),
+                    "Index " + expectedIndex + " not used");
+        }
+    }
+
+    /**
+     * Records the SQL Hibernate prepares, unchanged.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
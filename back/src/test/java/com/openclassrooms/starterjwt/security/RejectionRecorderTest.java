@@ -0,0 +1,50 @@
+package com.openclassrooms.starterjwt.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+@DisplayName("RejectionRecorder unit tests")
+public class RejectionRecorderTest {
+
+    private static Instant startedAt;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("Every rejection should be counted under its reason")
+    public void record_ShouldCountRejectionsPerReason() {
+        // Arrange
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RejectionRecorder rejectionRecorder = new RejectionRecorder(meterRegistry, 60000);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            rejectionRecorder.record("jwt_malformed", "/api/session");
+        }
+        rejectionRecorder.record(RejectionRecorder.UNAUTHORIZED, "/api/user/1");
+
+        // Assert
+        assertThat(rejectionRecorder.count("jwt_malformed")).isEqualTo(1000);
+        assertThat(rejectionRecorder.count(RejectionRecorder.UNAUTHORIZED)).isEqualTo(1);
+        assertThat(rejectionRecorder.count("jwt_expired")).isZero();
+        assertThat(meterRegistry.get("security.rejections").tag("reason", "jwt_malformed").counter().count())
+                .isEqualTo(1000);
+    }
+}
@@ -0,0 +1,54 @@
+package com.openclassrooms.starterjwt.security;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+public class WebSecurityConfigTest {
+
+    private static Instant startedAt;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("Legacy BCrypt hashes without prefix should still match and be flagged for upgrade")
+    public void delegatingPasswordEncoder_LegacyHash_ShouldMatchAndRequireUpgrade() {
+        PasswordEncoder passwordEncoder = WebSecurityConfig.delegatingPasswordEncoder(4);
+        String legacyHash = new BCryptPasswordEncoder(4).encode("test!1234");
+
+        assertThat(passwordEncoder.matches("test!1234", legacyHash)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(legacyHash)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Hashes below the configured cost should be flagged for upgrade, others should not")
+    public void delegatingPasswordEncoder_ShouldFlagHashesBelowConfiguredCost() {
+        PasswordEncoder lowCostEncoder = WebSecurityConfig.delegatingPasswordEncoder(4);
+        PasswordEncoder passwordEncoder = WebSecurityConfig.delegatingPasswordEncoder(5);
+
+        String lowCostHash = lowCostEncoder.encode("test!1234");
+        String currentHash = passwordEncoder.encode("test!1234");
+
+        assertThat(currentHash).startsWith("{bcrypt}$2a$05$");
+        assertThat(passwordEncoder.matches("test!1234", lowCostHash)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(lowCostHash)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(currentHash)).isFalse();
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+public class BoundedPasswordEncoderTest {
+
+    private static Instant startedAt;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BoundedPasswordEncoder boundedPasswordEncoder;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        boundedPasswordEncoder.destroy();
+    }
+
+    @Test
+    @DisplayName("Encode and matches should be delegated and timed on the hashing pool")
+    public void encodeAndMatches_ShouldDelegate() {
+        // Arrange
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode("password")).thenAnswer(invocation -> Thread.currentThread().getName());
+        when(delegate.matches("password", "hash")).thenReturn(true);
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, meterRegistry);
+
+        // Act
+        String encodingThread = boundedPasswordEncoder.encode("password");
+        boolean matches = boundedPasswordEncoder.matches("password", "hash");
+
+        // Assert
+        assertThat(encodingThread).startsWith("password-hashing-");
+        assertThat(matches).isTrue();
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "matches").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("When the pool and its queue are full, hashing should be rejected with a ServiceUnavailableException")
+    public void encode_WhenSaturated_ShouldRejectFast() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.encode("first"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> boundedPasswordEncoder.encode("second"));
+        while (meterRegistry.get("password.hashing.queue.size").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        // Act & Assert
+        assertThatThrownBy(() -> boundedPasswordEncoder.encode("third"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+    }
+
+    @Test
+    @DisplayName("Exceptions thrown by the delegate should be propagated to the caller")
+    public void matches_WhenDelegateFails_ShouldPropagateException() {
+        PasswordEncoder delegate = mock(PasswordEncoder.class);
+        when(delegate.matches(any(), any())).thenThrow(new IllegalArgumentException("Bad hash"));
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, meterRegistry);
+
+        assertThatThrownBy(() -> boundedPasswordEncoder.matches("password", "hash"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Bad hash");
+    }
+}
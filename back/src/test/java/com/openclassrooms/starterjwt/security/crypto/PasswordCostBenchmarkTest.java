@@ -0,0 +1,39 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+public class PasswordCostBenchmarkTest {
+
+    private static Instant startedAt;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("The benchmark should report a hashing time for each cost level")
+    public void measureMedianMillis_ShouldReportEachCost() {
+        PasswordCostBenchmark passwordCostBenchmark = new PasswordCostBenchmark(4, 6, 3);
+
+        Map<Integer, Double> medians = passwordCostBenchmark.measureMedianMillis();
+
+        assertThat(medians).containsOnlyKeys(4, 5, 6);
+        assertThat(medians.values()).allMatch(median -> median > 0);
+    }
+}
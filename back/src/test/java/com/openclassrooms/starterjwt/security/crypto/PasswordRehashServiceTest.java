@@ -0,0 +1,121 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class PasswordRehashServiceTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    private PasswordRehashService passwordRehashService;
+
+    private final UserDetailsImpl userDetails = UserDetailsImpl.builder()
+            .id(1L)
+            .username("john.doe@mail.com")
+            .password("outdatedHash")
+            .build();
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        // The write runs on the calling thread, once the hash is computed
+        passwordRehashService = new PasswordRehashService(passwordEncoder, userRepository, userDetailsService, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("An outdated hash should be re-hashed and written back only if unchanged")
+    public void rehashIfOutdated_OutdatedHash_ShouldUpdatePassword() {
+        // Arrange
+        when(passwordEncoder.upgradeEncoding("outdatedHash")).thenReturn(true);
+        when(passwordEncoder.encodeAsync("password")).thenReturn(CompletableFuture.completedFuture("upgradedHash"));
+
+        // Act
+        passwordRehashService.rehashIfOutdated(userDetails, "password");
+
+        // Assert
+        verify(userRepository).updatePassword("john.doe@mail.com", "outdatedHash", "upgradedHash");
+        verify(userDetailsService).evictUserDetails("john.doe@mail.com");
+    }
+
+    @Test
+    @DisplayName("A hash at the configured cost should not be re-hashed")
+    public void rehashIfOutdated_CurrentHash_ShouldDoNothing() {
+        when(passwordEncoder.upgradeEncoding("outdatedHash")).thenReturn(false);
+
+        passwordRehashService.rehashIfOutdated(userDetails, "password");
+
+        verify(passwordEncoder, never()).encodeAsync(any());
+        verifyNoInteractions(userRepository, userDetailsService);
+    }
+
+    @Test
+    @DisplayName("When the hashing pool is saturated, the password should be left unchanged")
+    public void rehashIfOutdated_PoolSaturated_ShouldNotUpdatePassword() {
+        CompletableFuture<String> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new ServiceUnavailableException());
+        when(passwordEncoder.upgradeEncoding("outdatedHash")).thenReturn(true);
+        when(passwordEncoder.encodeAsync("password")).thenReturn(rejected);
+
+        passwordRehashService.rehashIfOutdated(userDetails, "password");
+
+        verifyNoInteractions(userRepository, userDetailsService);
+    }
+
+    @Test
+    @DisplayName("The new hash should be written from the write executor, not from the hashing thread")
+    public void rehashIfOutdated_ShouldWriteOnWriteExecutor() {
+        // Arrange
+        List<Runnable> writes = new ArrayList<>();
+        passwordRehashService = new PasswordRehashService(passwordEncoder, userRepository, userDetailsService, writes::add);
+        when(passwordEncoder.upgradeEncoding("outdatedHash")).thenReturn(true);
+        when(passwordEncoder.encodeAsync("password")).thenReturn(CompletableFuture.completedFuture("upgradedHash"));
+
+        // Act
+        passwordRehashService.rehashIfOutdated(userDetails, "password");
+
+        // Assert
+        verifyNoInteractions(userRepository, userDetailsService);
+        assertEquals(1, writes.size());
+        writes.get(0).run();
+        verify(userRepository).updatePassword("john.doe@mail.com", "outdatedHash", "upgradedHash");
+    }
+}
@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.security.RejectionRecorder;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -22,6 +23,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,6 +51,9 @@ public class AuthEntryPointJwtTest {
     @Mock
     private AuthenticationException authenticationException;
 
+    @Mock
+    private RejectionRecorder rejectionRecorder;
+
     @InjectMocks
     private AuthEntryPointJwt authEntryPointJwt;
 
@@ -79,4 +85,34 @@ public class AuthEntryPointJwtTest {
 
         assertEquals(expectedJson, response.getContentAsString());
     }
+
+    @Test
+    @DisplayName("Pre-encoded body should escape the path and message like the JSON serializer and record the rejection")
+    void commence_WithCharactersToEscape_ShouldMatchSerializerOutput() throws IOException, ServletException {
+
+        // Arrange
+        String errorMessage = "Full \"authentication\" is required";
+        when(authenticationException.getMessage()).thenReturn(errorMessage);
+        when(httpServletRequest.getServletPath()).thenReturn("/api/\"quoted\"\\path");
+
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        MockHttpServletResponse secondResponse = new MockHttpServletResponse();
+
+        // Act
+        authEntryPointJwt.commence(httpServletRequest, firstResponse, authenticationException);
+        authEntryPointJwt.commence(httpServletRequest, secondResponse, authenticationException);
+
+        // Assert
+        Map<String, Object> expectedResponseBody = new HashMap<>();
+        expectedResponseBody.put("status", 401);
+        expectedResponseBody.put("error", "Unauthorized");
+        expectedResponseBody.put("message", errorMessage);
+        expectedResponseBody.put("path", "/api/\"quoted\"\\path");
+
+        String expectedJson = new ObjectMapper().writeValueAsString(expectedResponseBody);
+
+        assertEquals(expectedJson, firstResponse.getContentAsString());
+        assertEquals(expectedJson, secondResponse.getContentAsString());
+        verify(rejectionRecorder, times(2)).record(RejectionRecorder.UNAUTHORIZED, errorMessage);
+    }
 }
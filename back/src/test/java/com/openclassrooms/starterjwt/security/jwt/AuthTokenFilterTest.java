@@ -1,7 +1,12 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 
+import com.openclassrooms.starterjwt.security.RejectionRecorder;
+import com.openclassrooms.starterjwt.security.opaque.OpaqueTokenService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,6 +16,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
@@ -30,9 +36,21 @@ public class AuthTokenFilterTest {
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private JwtTokenCache jwtTokenCache;
+
     @Mock
     private UserDetailsServiceImpl userDetailsService;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private OpaqueTokenService opaqueTokenService;
+
+    @Mock
+    private RejectionRecorder rejectionRecorder;
+
     @Mock
     private HttpServletRequest request;
 
@@ -71,8 +89,8 @@ public class AuthTokenFilterTest {
         String username = "userName";
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
-        when(jwtUtils.validateJwtToken(dummyJwtToken)).thenReturn(true);
-        when(jwtUtils.getUserNameFromJwtToken(dummyJwtToken)).thenReturn(username);
+        when(jwtUtils.verifyJwtToken(dummyJwtToken))
+                .thenReturn(JwtVerification.valid(Jwts.claims().setSubject(username)));
 
         UserDetails mockUserDetails = mock(UserDetails.class);
         when(userDetailsService.loadUserByUsername(username)).thenReturn(mockUserDetails);
@@ -85,6 +103,9 @@ public class AuthTokenFilterTest {
         assertThat(SecurityContextHolder.getContext().getAuthentication()).isNotNull();
         assertThat(SecurityContextHolder.getContext().getAuthentication() instanceof UsernamePasswordAuthenticationToken).isTrue();
         assertThat(mockUserDetails).isEqualTo(SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        verify(jwtUtils, times(1)).verifyJwtToken(dummyJwtToken);
+        verify(jwtUtils, never()).validateJwtToken(dummyJwtToken);
+        verify(jwtUtils, never()).getUserNameFromJwtToken(dummyJwtToken);
     }
 
     @Test
@@ -94,7 +115,8 @@ public class AuthTokenFilterTest {
         String dummyJwtToken = "DummyToken";
 
         when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
-        when(jwtUtils.validateJwtToken(dummyJwtToken)).thenReturn(false);
+        when(jwtUtils.verifyJwtToken(dummyJwtToken))
+                .thenReturn(JwtVerification.failed(JwtVerification.Failure.INVALID_SIGNATURE));
 
         // Act
         authTokenFilter.doFilterInternal(request, response, filterChain);
@@ -102,7 +124,149 @@ public class AuthTokenFilterTest {
         // Assert
         verify(filterChain).doFilter(request, response);
         verify(jwtUtils, never()).getUserNameFromJwtToken(dummyJwtToken);
+        verify(jwtUtils, never()).getUserDetailsFromClaims(any());
+        verify(userDetailsService, never()).loadUserByUsername(any());
+        verify(rejectionRecorder).record(eq("jwt_invalid_signature"), nullable(String.class));
+    }
+
+    @Test
+    @DisplayName("In claims principal mode, the user should be loaded once then rebuilt from the token claims")
+    public void doFilterInternal_ClaimsPrincipal_ShouldOnlyRevalidateOnce() throws Exception {
+        // Arrange
+        String dummyJwtToken = "DummyToken";
+        String username = "john.doe@mail.com";
+        ReflectionTestUtils.setField(authTokenFilter, "claimsPrincipal", true);
+        ReflectionTestUtils.setField(authTokenFilter, "revalidationMs", 60000L);
+
+        UserDetailsImpl claimsUserDetails = UserDetailsImpl.builder().id(1L).username(username).build();
+        UserDetails databaseUserDetails = mock(UserDetails.class);
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
+        Claims claims = Jwts.claims().setSubject(username);
+        when(jwtUtils.verifyJwtToken(dummyJwtToken)).thenReturn(JwtVerification.valid(claims));
+        when(jwtUtils.getUserDetailsFromClaims(claims)).thenReturn(claimsUserDetails);
+        when(userDetailsService.loadUserByUsername(username)).thenReturn(databaseUserDetails);
+
+        // Act
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+        Object firstPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+        Object secondPrincipal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        // Assert
+        assertThat(firstPrincipal).isEqualTo(databaseUserDetails);
+        assertThat(secondPrincipal).isEqualTo(claimsUserDetails);
+        verify(userDetailsService, times(1)).loadUserByUsername(username);
+        verify(jwtUtils, never()).getUserNameFromJwtToken(dummyJwtToken);
+    }
+
+    @Test
+    @DisplayName("In claims principal mode, the user should be loaded again once the revalidation interval has elapsed")
+    public void doFilterInternal_ClaimsPrincipal_ShouldRevalidateAfterInterval() throws Exception {
+        // Arrange
+        String dummyJwtToken = "DummyToken";
+        String username = "john.doe@mail.com";
+        ReflectionTestUtils.setField(authTokenFilter, "claimsPrincipal", true);
+        ReflectionTestUtils.setField(authTokenFilter, "revalidationMs", 0L);
+
+        UserDetailsImpl claimsUserDetails = UserDetailsImpl.builder().id(1L).username(username).build();
+        UserDetails databaseUserDetails = mock(UserDetails.class);
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
+        Claims claims = Jwts.claims().setSubject(username);
+        when(jwtUtils.verifyJwtToken(dummyJwtToken)).thenReturn(JwtVerification.valid(claims));
+        when(jwtUtils.getUserDetailsFromClaims(claims)).thenReturn(claimsUserDetails);
+        when(userDetailsService.loadUserByUsername(username)).thenReturn(databaseUserDetails);
+
+        // Act
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+        SecurityContextHolder.clearContext();
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isEqualTo(databaseUserDetails);
+        verify(userDetailsService, times(2)).loadUserByUsername(username);
+    }
+
+    @Test
+    @DisplayName("A token found in the verified token cache should not be parsed again")
+    public void doFilterInternal_CachedToken_ShouldSkipVerification() throws Exception {
+        // Arrange
+        String dummyJwtToken = "DummyToken";
+        String username = "userName";
+        UserDetails mockUserDetails = mock(UserDetails.class);
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
+        when(jwtTokenCache.get(dummyJwtToken)).thenReturn(Jwts.claims().setSubject(username));
+        when(userDetailsService.loadUserByUsername(username)).thenReturn(mockUserDetails);
+
+        // Act
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isEqualTo(mockUserDetails);
+        verify(jwtUtils, never()).verifyJwtToken(any());
+        verify(jwtTokenCache, never()).put(any(), any());
+    }
+
+    @Test
+    @DisplayName("A newly verified token should be added to the verified token cache")
+    public void doFilterInternal_VerifiedToken_ShouldBeCached() throws Exception {
+        // Arrange
+        String dummyJwtToken = "DummyToken";
+        Claims claims = Jwts.claims().setSubject("userName");
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
+        when(jwtUtils.verifyJwtToken(dummyJwtToken)).thenReturn(JwtVerification.valid(claims));
+        when(userDetailsService.loadUserByUsername("userName")).thenReturn(mock(UserDetails.class));
+
+        // Act
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        verify(jwtTokenCache).put(dummyJwtToken, claims);
+    }
+
+    @Test
+    @DisplayName("A revoked token should not authenticate the user, even when found in the verified token cache")
+    public void doFilterInternal_RevokedToken_ShouldNotAuthenticateUser() throws Exception {
+        // Arrange
+        String dummyJwtToken = "DummyToken";
+        Claims claims = Jwts.claims().setSubject("userName").setId("revoked-jti");
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + dummyJwtToken);
+        when(request.getServletPath()).thenReturn("/api/session");
+        when(jwtTokenCache.get(dummyJwtToken)).thenReturn(claims);
+        when(tokenRevocationService.isRevoked(claims)).thenReturn(true);
+
+        // Act
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
         verify(userDetailsService, never()).loadUserByUsername(any());
+        verify(rejectionRecorder).record(RejectionRecorder.REVOKED_TOKEN, "/api/session");
+        verify(filterChain).doFilter(request, response);
     }
 
+    @Test
+    @DisplayName("In opaque token mode, the token should be resolved from the store without any JWT verification")
+    public void doFilterInternal_OpaqueToken_ShouldAuthenticateFromStore() throws Exception {
+        // Arrange
+        UserDetails mockUserDetails = mock(UserDetails.class);
+
+        when(request.getHeader("Authorization")).thenReturn("Bearer opaqueToken");
+        when(opaqueTokenService.isEnabled()).thenReturn(true);
+        when(opaqueTokenService.resolve("opaqueToken")).thenReturn(mockUserDetails);
+
+        // Act
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        // Assert
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getPrincipal()).isEqualTo(mockUserDetails);
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getCredentials()).isEqualTo("opaqueToken");
+        verifyNoInteractions(jwtUtils, jwtTokenCache, tokenRevocationService);
+        verify(filterChain).doFilter(request, response);
+    }
 }
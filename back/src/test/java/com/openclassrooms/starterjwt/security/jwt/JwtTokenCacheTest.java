@@ -0,0 +1,84 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+public class JwtTokenCacheTest {
+
+    private static Instant startedAt;
+
+    private JwtTokenCache jwtTokenCache;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        jwtTokenCache = new JwtTokenCache(100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Verified claims should be returned for the same token until the token expires")
+    public void get_AfterPut_ShouldReturnClaims() {
+        // Arrange
+        Claims claims = Jwts.claims()
+                .setSubject("john.doe@mail.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000));
+        jwtTokenCache.put("token", claims);
+
+        // Act & Assert
+        assertThat(jwtTokenCache.get("token")).isSameAs(claims);
+        assertThat(jwtTokenCache.get("otherToken")).isNull();
+        assertThat(jwtTokenCache.getCache().getHits()).isEqualTo(1);
+        assertThat(jwtTokenCache.getCache().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Tokens without expiration, expired or oversized should not be cached")
+    public void put_UncacheableTokens_ShouldBeIgnored() {
+        // Arrange
+        Claims withoutExpiration = Jwts.claims().setSubject("john.doe@mail.com");
+        Claims expired = Jwts.claims().setExpiration(new Date(System.currentTimeMillis() - 1000));
+        Claims valid = Jwts.claims().setExpiration(new Date(System.currentTimeMillis() + 60000));
+        String oversizedToken = String.join("", Collections.nCopies(JwtTokenCache.MAX_TOKEN_LENGTH + 1, "a"));
+
+        // Act
+        jwtTokenCache.put("withoutExpiration", withoutExpiration);
+        jwtTokenCache.put("expired", expired);
+        jwtTokenCache.put(oversizedToken, valid);
+
+        // Assert
+        assertThat(jwtTokenCache.getCache().size()).isZero();
+    }
+
+    @Test
+    @DisplayName("An invalidated token should no longer be served from the cache")
+    public void invalidate_ShouldRemoveToken() {
+        Claims claims = Jwts.claims().setExpiration(new Date(System.currentTimeMillis() + 60000));
+        jwtTokenCache.put("token", claims);
+
+        jwtTokenCache.invalidate("token");
+
+        assertThat(jwtTokenCache.get("token")).isNull();
+    }
+}
@@ -53,6 +53,7 @@ public class JwtUtilsTest {
         jwtUtils = new JwtUtils();
         ReflectionTestUtils.setField(jwtUtils, "jwtSecret", jwtSecretKey);
         ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3600000);
+        jwtUtils.init();
     }
 
     @Test
@@ -88,6 +89,113 @@ public class JwtUtilsTest {
         assertEquals("john.doe@mail.com", username);
     }
 
+    @Test
+    @DisplayName("Each generated Jwt Token should carry its own token id")
+    public void generateJwtToken_ShouldSetUniqueTokenId() {
+        // Arrange
+        when(userDetails.getUsername()).thenReturn("john.doe@mail.com");
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+
+        // Act
+        JwtVerification first = jwtUtils.verifyJwtToken(jwtUtils.generateJwtToken(authentication));
+        JwtVerification second = jwtUtils.verifyJwtToken(jwtUtils.generateJwtToken(authentication));
+
+        // Assert
+        assertNotNull(first.getClaims().getId());
+        assertNotEquals(first.getClaims().getId(), second.getClaims().getId());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the user details from the Jwt Token claims")
+    public void getUserDetailsFromJwtToken_ShouldReturnUserDetailsFromClaims() {
+        // Arrange
+        when(userDetails.getId()).thenReturn(1L);
+        when(userDetails.getUsername()).thenReturn("john.doe@mail.com");
+        when(userDetails.getFirstName()).thenReturn("John");
+        when(userDetails.getLastName()).thenReturn("Doe");
+        when(userDetails.getAdmin()).thenReturn(true);
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+
+        String generatedJwtToken = jwtUtils.generateJwtToken(authentication);
+
+        // Act
+        UserDetailsImpl claimsUserDetails = jwtUtils.getUserDetailsFromJwtToken(generatedJwtToken);
+
+        // Assert
+        assertEquals(1L, claimsUserDetails.getId());
+        assertEquals("john.doe@mail.com", claimsUserDetails.getUsername());
+        assertEquals("John", claimsUserDetails.getFirstName());
+        assertEquals("Doe", claimsUserDetails.getLastName());
+        assertTrue(claimsUserDetails.getAdmin());
+    }
+
+    @Test
+    @DisplayName("A Jwt Token without principal claims should not rebuild user details")
+    public void getUserDetailsFromJwtToken_WithoutClaims_ShouldReturnNull() {
+        String jwt = Jwts.builder()
+                .setSubject("john.doe@mail.com")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.HS512, jwtSecretKey)
+                .compact();
+
+        assertNull(jwtUtils.getUserDetailsFromJwtToken(jwt));
+    }
+
+    @Test
+    @DisplayName("Verifying a generated JWT token should return its claims")
+    public void verifyJwtToken_ValidToken_ShouldReturnClaims() {
+        // Arrange
+        when(userDetails.getUsername()).thenReturn("john.doe@mail.com");
+        when(authentication.getPrincipal()).thenReturn(userDetails);
+
+        String generatedJwtToken = jwtUtils.generateJwtToken(authentication);
+
+        // Act
+        JwtVerification verification = jwtUtils.verifyJwtToken(generatedJwtToken);
+
+        // Assert
+        assertTrue(verification.isValid());
+        assertNull(verification.getFailure());
+        assertEquals("john.doe@mail.com", verification.getClaims().getSubject());
+    }
+
+    @Test
+    @DisplayName("Verifying an expired JWT token should report the expiration")
+    public void verifyJwtToken_ExpiredToken_ShouldReturnExpiredFailure() {
+        String jwt = Jwts.builder()
+                .setSubject("john.doe@mail.com")
+                .setIssuedAt(new Date(System.currentTimeMillis() - 3600000))
+                .setExpiration(new Date(System.currentTimeMillis() - 60000))
+                .signWith(SignatureAlgorithm.HS512, jwtSecretKey)
+                .compact();
+
+        JwtVerification verification = jwtUtils.verifyJwtToken(jwt);
+
+        assertFalse(verification.isValid());
+        assertNull(verification.getClaims());
+        assertEquals(JwtVerification.Failure.EXPIRED, verification.getFailure());
+    }
+
+    @Test
+    @DisplayName("Verifying a JWT token with a wrong signature should report the invalid signature")
+    public void verifyJwtToken_InvalidTokenSignature_ShouldReturnInvalidSignatureFailure() {
+        String jwt = Jwts.builder()
+                .setSubject("john.doe@mail.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.HS512, "wrongJwtSecretKey")
+                .compact();
+
+        assertEquals(JwtVerification.Failure.INVALID_SIGNATURE, jwtUtils.verifyJwtToken(jwt).getFailure());
+    }
+
+    @Test
+    @DisplayName("Verifying a malformed or empty JWT token should report the failure reason")
+    public void verifyJwtToken_MalformedOrEmptyToken_ShouldReturnFailure() {
+        assertEquals(JwtVerification.Failure.MALFORMED, jwtUtils.verifyJwtToken("invalidToken").getFailure());
+        assertEquals(JwtVerification.Failure.EMPTY, jwtUtils.verifyJwtToken("").getFailure());
+    }
+
     @Test
     @DisplayName("An expired JWT token should return an invalid token")
     public void validateJwtToken_ExpiredToken_ShouldReturnInvalidToken() {
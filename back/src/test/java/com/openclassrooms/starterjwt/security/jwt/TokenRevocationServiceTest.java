@@ -0,0 +1,147 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TokenRevocationService unit tests")
+public class TokenRevocationServiceTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1000, 0.01);
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("A token never revoked should be checked without querying the deny list")
+    public void isRevoked_NotRevokedToken_ShouldNotQueryRepository() {
+        // Arrange
+        Claims claims = claims("never-revoked");
+
+        // Act
+        boolean revoked = tokenRevocationService.isRevoked(claims);
+
+        // Assert
+        assertThat(revoked).isFalse();
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    @DisplayName("A revoked token should be persisted and reported as revoked")
+    public void revoke_ShouldPersistAndReportToken() {
+        // Arrange
+        Claims claims = claims("revoked-jti");
+
+        // Act
+        boolean revoked = tokenRevocationService.revoke(claims);
+
+        // Assert
+        assertThat(revoked).isTrue();
+        assertThat(tokenRevocationService.isRevoked(claims)).isTrue();
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+        verify(revokedTokenRepository, never()).existsById(any());
+    }
+
+    @Test
+    @DisplayName("Rebuilding should load the active revocations from the deny list")
+    public void rebuild_ShouldLoadActiveRevocations() {
+        // Arrange
+        Claims claims = claims("persisted-jti");
+        when(revokedTokenRepository.findActiveJtis(any())).thenReturn(Collections.singletonList("persisted-jti"));
+        when(revokedTokenRepository.existsById("persisted-jti")).thenReturn(true);
+
+        // Act
+        tokenRevocationService.rebuild();
+
+        // Assert
+        assertThat(tokenRevocationService.isRevoked(claims)).isTrue();
+        assertThat(tokenRevocationService.isRevoked(claims)).isTrue();
+        verify(revokedTokenRepository, times(1)).existsById("persisted-jti");
+    }
+
+    @Test
+    @DisplayName("Pruning should delete the expired revocations and rebuild the filter")
+    public void pruneExpired_ShouldDeleteExpiredAndRebuild() {
+        // Arrange
+        when(revokedTokenRepository.deleteExpired(any())).thenReturn(3);
+
+        // Act
+        tokenRevocationService.pruneExpired();
+
+        // Assert
+        verify(revokedTokenRepository).deleteExpired(any());
+        verify(revokedTokenRepository).findActiveJtis(any());
+    }
+
+    @Test
+    @DisplayName("The token of the current authentication should be revoked")
+    public void revokeCurrentToken_ShouldRevokeCredentialsClaims() {
+        // Arrange
+        Claims claims = claims("current-jti");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("john.doe@mail.com", claims, Collections.emptyList()));
+
+        // Act & Assert
+        assertThat(tokenRevocationService.revokeCurrentToken()).isTrue();
+        assertThat(tokenRevocationService.isRevoked(claims)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Without a JWT authentication, nothing should be revoked")
+    public void revokeCurrentToken_WithoutAuthentication_ShouldReturnFalse() {
+        // Act & Assert
+        assertThat(tokenRevocationService.revokeCurrentToken()).isFalse();
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    private static Claims claims(String jti) {
+        return Jwts.claims()
+                .setId(jti)
+                .setSubject("john.doe@mail.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000));
+    }
+}
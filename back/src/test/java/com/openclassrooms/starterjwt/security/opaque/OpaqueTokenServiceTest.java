@@ -0,0 +1,208 @@
+package com.openclassrooms.starterjwt.security.opaque;
+
+import com.openclassrooms.starterjwt.models.AuthToken;
+import com.openclassrooms.starterjwt.repository.AuthTokenRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OpaqueTokenService unit tests")
+public class OpaqueTokenServiceTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private AuthTokenRepository authTokenRepository;
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    private OpaqueTokenService opaqueTokenService;
+
+    private UserDetailsImpl userDetails;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        opaqueTokenService = new OpaqueTokenService(authTokenRepository, userDetailsService,
+                "opaque", 3600000, 16, 1000, new SimpleMeterRegistry());
+        userDetails = UserDetailsImpl.builder().id(1L).username("john.doe@mail.com").build();
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("An issued token should be short, persisted hashed and resolved to its principal")
+    public void issue_ShouldPersistHashAndResolveToPrincipal() {
+        // Act
+        String token = opaqueTokenService.issue(userDetails);
+
+        // Assert
+        ArgumentCaptor<AuthToken> authTokenCaptor = ArgumentCaptor.forClass(AuthToken.class);
+        verify(authTokenRepository).save(authTokenCaptor.capture());
+        assertThat(token).hasSize(43);
+        assertThat(authTokenCaptor.getValue().getTokenHash()).isNotEqualTo(token).hasSize(44);
+        assertThat(authTokenCaptor.getValue().getUsername()).isEqualTo("john.doe@mail.com");
+        assertThat(opaqueTokenService.resolve(token)).isSameAs(userDetails);
+        assertThat(opaqueTokenService.resolve("unknownToken")).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Tokens reloaded from the table should get their principal on first use only")
+    public void load_ShouldRestorePersistedTokens() {
+        // Arrange
+        String token = opaqueTokenService.issue(userDetails);
+        ArgumentCaptor<AuthToken> authTokenCaptor = ArgumentCaptor.forClass(AuthToken.class);
+        verify(authTokenRepository).save(authTokenCaptor.capture());
+
+        OpaqueTokenService restartedService = new OpaqueTokenService(authTokenRepository, userDetailsService,
+                "opaque", 3600000, 16, 1000, new SimpleMeterRegistry());
+        when(authTokenRepository.findActive(any(LocalDateTime.class)))
+                .thenReturn(Collections.singletonList(authTokenCaptor.getValue()));
+        when(userDetailsService.loadUserByUsername("john.doe@mail.com")).thenReturn(userDetails);
+
+        // Act
+        restartedService.load();
+
+        // Assert
+        assertThat(restartedService.resolve(token)).isSameAs(userDetails);
+        assertThat(restartedService.resolve(token)).isSameAs(userDetails);
+        verify(userDetailsService, times(1)).loadUserByUsername("john.doe@mail.com");
+    }
+
+    @Test
+    @DisplayName("A token dropped by the capped store should be reloaded from the table, unless revoked")
+    public void resolve_AfterEviction_ShouldReloadFromTable() {
+        // Arrange
+        OpaqueTokenService cappedService = new OpaqueTokenService(authTokenRepository, userDetailsService,
+                "opaque", 3600000, 1, 2, new SimpleMeterRegistry());
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(cappedService.issue(userDetails));
+        }
+        ArgumentCaptor<AuthToken> authTokenCaptor = ArgumentCaptor.forClass(AuthToken.class);
+        verify(authTokenRepository, times(10)).save(authTokenCaptor.capture());
+        when(authTokenRepository.findById(anyString())).thenAnswer(invocation -> authTokenCaptor.getAllValues().stream()
+                .filter(authToken -> authToken.getTokenHash().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(userDetailsService.loadUserByUsername("john.doe@mail.com")).thenReturn(userDetails);
+
+        // Act & Assert
+        assertThat(cappedService.getStore().getEvictions()).isPositive();
+        for (String token : tokens) {
+            assertThat(cappedService.resolve(token)).isSameAs(userDetails);
+        }
+        assertThat(cappedService.getStore().size()).isLessThanOrEqualTo(2);
+        assertThat(cappedService.resolve("unknownToken")).isNull();
+    }
+
+    @Test
+    @DisplayName("Revoking the current token should remove it from the store and the table")
+    public void revokeCurrentToken_ShouldRemoveToken() {
+        // Arrange
+        String token = opaqueTokenService.issue(userDetails);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, token, Collections.emptyList()));
+
+        // Act
+        boolean revoked = opaqueTokenService.revokeCurrentToken();
+
+        // Assert
+        assertThat(revoked).isTrue();
+        assertThat(opaqueTokenService.resolve(token)).isNull();
+        verify(authTokenRepository).deleteByTokenHash(any());
+    }
+
+    @Test
+    @DisplayName("Logging out twice with the same token should not fail once its row is gone")
+    public void revokeCurrentToken_Twice_ShouldTreatMissingRowAsRevoked() {
+        // Arrange
+        String token = opaqueTokenService.issue(userDetails);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userDetails, token, Collections.emptyList()));
+        when(authTokenRepository.deleteByTokenHash(any())).thenReturn(1, 0);
+
+        // Act
+        boolean firstRevoked = opaqueTokenService.revokeCurrentToken();
+        boolean secondRevoked = opaqueTokenService.revokeCurrentToken();
+
+        // Assert
+        assertThat(firstRevoked).isTrue();
+        assertThat(secondRevoked).isTrue();
+        assertThat(opaqueTokenService.revoke(token)).isFalse();
+        assertThat(opaqueTokenService.resolve(token)).isNull();
+        verify(authTokenRepository, never()).deleteById(any());
+    }
+
+    @Test
+    @DisplayName("Revoking all the tokens of a user should only remove that user's tokens")
+    public void revokeAll_ShouldRemoveEveryTokenOfTheUser() {
+        // Arrange
+        UserDetailsImpl otherUserDetails = UserDetailsImpl.builder().id(2L).username("jane.doe@mail.com").build();
+        String firstToken = opaqueTokenService.issue(userDetails);
+        String secondToken = opaqueTokenService.issue(userDetails);
+        String otherToken = opaqueTokenService.issue(otherUserDetails);
+
+        // Act
+        opaqueTokenService.revokeAll("john.doe@mail.com");
+
+        // Assert
+        assertThat(opaqueTokenService.resolve(firstToken)).isNull();
+        assertThat(opaqueTokenService.resolve(secondToken)).isNull();
+        assertThat(opaqueTokenService.resolve(otherToken)).isSameAs(otherUserDetails);
+        verify(authTokenRepository).deleteByUsername("john.doe@mail.com");
+    }
+
+    @Test
+    @DisplayName("In JWT mode, nothing should be loaded nor pruned")
+    public void load_InJwtMode_ShouldDoNothing() {
+        // Arrange
+        OpaqueTokenService jwtModeService = new OpaqueTokenService(authTokenRepository, userDetailsService,
+                "jwt", 3600000, 16, 1000, new SimpleMeterRegistry());
+
+        // Act
+        jwtModeService.load();
+        jwtModeService.pruneExpired();
+
+        // Assert
+        assertThat(jwtModeService.isEnabled()).isFalse();
+        verifyNoInteractions(authTokenRepository);
+    }
+}
@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.security.opaque;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+@DisplayName("OpaqueTokenStore unit tests")
+public class OpaqueTokenStoreTest {
+
+    private static Instant startedAt;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("The stripe count should be rounded up to a power of two")
+    public void constructor_ShouldRoundStripesToPowerOfTwo() {
+        assertThat(new OpaqueTokenStore(64, 1000).getStripeCount()).isEqualTo(64);
+        assertThat(new OpaqueTokenStore(50, 1000).getStripeCount()).isEqualTo(64);
+        assertThat(new OpaqueTokenStore(1, 1000).getStripeCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Expired entries should not be returned and should be swept")
+    public void get_ExpiredEntry_ShouldReturnNull() {
+        // Arrange
+        OpaqueTokenStore store = new OpaqueTokenStore(4, 1000);
+        store.put("expired", new OpaqueTokenStore.Entry("john.doe@mail.com", 1000, null), 0);
+        store.put("active", new OpaqueTokenStore.Entry("john.doe@mail.com", 5000, null), 0);
+        store.put("otherExpired", new OpaqueTokenStore.Entry("jane.doe@mail.com", 1000, null), 0);
+
+        // Act & Assert
+        assertThat(store.get("expired", 2000)).isNull();
+        assertThat(store.get("active", 2000)).isNotNull();
+        assertThat(store.size()).isEqualTo(2);
+
+        store.sweepExpired(2000);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Full stripes should drop their expired entries first, then active ones, never exceeding the cap")
+    public void put_WhenStripesFull_ShouldEvictExpiredFirst() {
+        // Arrange
+        OpaqueTokenStore store = new OpaqueTokenStore(2, 20);
+        for (int i = 0; i < 100; i++) {
+            store.put("soonExpired" + i, new OpaqueTokenStore.Entry("john.doe@mail.com", 1000, null), 0);
+        }
+        assertThat(store.size()).isLessThanOrEqualTo(20);
+        long evictedBefore = store.getEvictions();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            store.put("active" + i, new OpaqueTokenStore.Entry("jane.doe@mail.com", 5000, null), 2000);
+        }
+
+        // Assert
+        int size = store.size();
+        assertThat(size).isLessThanOrEqualTo(20);
+        store.sweepExpired(2000);
+        assertThat(store.size()).isEqualTo(size);
+        assertThat(store.getEvictions() - evictedBefore).isEqualTo(100 - size);
+        assertThat(store.get("active99", 2000)).isNotNull();
+    }
+}
@@ -0,0 +1,100 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuthRateLimitFilter unit tests")
+public class AuthRateLimitFilterTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private AuthRateLimiter authRateLimiter;
+
+    @Mock
+    private FilterChain filterChain;
+
+    @InjectMocks
+    private AuthRateLimitFilter authRateLimitFilter = new AuthRateLimitFilter();
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("Auth requests within the client rate should reach the chain")
+    public void doFilter_WithinRate_ShouldContinueChain() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setServletPath("/api/auth/login");
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(authRateLimiter.tryAcquireClient("10.0.0.1")).thenReturn(true);
+
+        // Act
+        authRateLimitFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    @DisplayName("Auth requests over the client rate should be answered with 429 without reaching the chain")
+    public void doFilter_OverRate_ShouldReturnTooManyRequests() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setServletPath("/api/auth/login");
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(authRateLimiter.tryAcquireClient("10.0.0.1")).thenReturn(false);
+
+        // Act
+        authRateLimitFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        verifyNoInteractions(filterChain);
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(response.getContentAsString()).isEqualTo("{\"message\":\"Error: Too many requests!\"}");
+    }
+
+    @Test
+    @DisplayName("Requests outside of the auth endpoints should not be rate limited")
+    public void doFilter_OtherEndpoint_ShouldNotBeRateLimited() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+        request.setServletPath("/api/session");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        authRateLimitFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(authRateLimiter);
+    }
+}
@@ -0,0 +1,63 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import com.openclassrooms.starterjwt.security.RejectionRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuthRateLimiter unit tests")
+public class AuthRateLimiterTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private RejectionRecorder rejectionRecorder;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("A rate limited email should be recorded masked")
+    public void tryAcquireEmail_OverRate_ShouldRecordMaskedEmail() {
+        // Arrange
+        AuthRateLimiter authRateLimiter = new AuthRateLimiter(20, 20, 1, 1, 600000, 1000,
+                rejectionRecorder, new SimpleMeterRegistry());
+
+        // Act
+        boolean first = authRateLimiter.tryAcquireEmail("John.Doe@mail.com");
+        boolean second = authRateLimiter.tryAcquireEmail("john.doe@mail.com");
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        verify(rejectionRecorder).record(RejectionRecorder.RATE_LIMITED_EMAIL, "j***@mail.com");
+    }
+
+    @Test
+    @DisplayName("Masking should keep only the first character of the local part and the domain")
+    public void mask_ShouldHideLocalPart() {
+        assertThat(AuthRateLimiter.mask("john.doe@mail.com")).isEqualTo("j***@mail.com");
+        assertThat(AuthRateLimiter.mask("@mail.com")).isEqualTo("***");
+        assertThat(AuthRateLimiter.mask("not-an-email")).isEqualTo("***");
+    }
+}
@@ -0,0 +1,145 @@
+package com.openclassrooms.starterjwt.security.ratelimit;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+@DisplayName("TokenBucketLimiter unit tests")
+public class TokenBucketLimiterTest {
+
+    private static Instant startedAt;
+
+    private MutableClock clock;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        clock = new MutableClock(1_000_000L);
+    }
+
+    @Test
+    @DisplayName("A burst up to the capacity should pass, then requests should be refused until a token is refilled")
+    public void tryAcquire_OverCapacity_ShouldRefuseUntilRefill() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 60, 600000, 100, clock);
+
+        // Act & Assert
+        assertThat(limiter.tryAcquire("client")).isTrue();
+        assertThat(limiter.tryAcquire("client")).isTrue();
+        assertThat(limiter.tryAcquire("client")).isTrue();
+        assertThat(limiter.tryAcquire("client")).isFalse();
+        assertThat(limiter.tryAcquire("otherClient")).isTrue();
+
+        clock.advance(1000);
+        assertThat(limiter.tryAcquire("client")).isTrue();
+        assertThat(limiter.tryAcquire("client")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Once the bucket limit is reached, a new key should still get its own bucket")
+    public void tryAcquire_WhenMaxBucketsReached_ShouldGiveNewKeysTheirOwnBucket() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 600000, 1, clock);
+        limiter.tryAcquire("client");
+
+        // Act & Assert
+        assertThat(limiter.tryAcquire("firstNewcomer")).isTrue();
+        assertThat(limiter.tryAcquire("secondNewcomer")).isTrue();
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Flooding the limiter with new keys should not lock out a user logging in afterwards")
+    public void tryAcquire_AfterFlood_ShouldLetFreshKeyIn() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 5, 600000, 100, clock);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("attacker" + i);
+            limiter.tryAcquire("attacker" + i);
+        }
+
+        // Act & Assert
+        assertThat(limiter.size()).isLessThanOrEqualTo(100);
+        assertThat(limiter.tryAcquire("user@test.com")).isTrue();
+        assertThat(limiter.tryAcquire("user@test.com")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Making room should evict the buckets closest to full before the throttled ones")
+    public void tryAcquire_WhenMaxBucketsReached_ShouldKeepThrottledBuckets() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 1, 600000, 2, clock);
+        limiter.tryAcquire("throttled");
+        limiter.tryAcquire("throttled");
+        limiter.tryAcquire("occasional");
+
+        // Act
+        assertThat(limiter.tryAcquire("newcomer")).isTrue();
+
+        // Assert
+        assertThat(limiter.tryAcquire("throttled")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Buckets left idle should be evicted")
+    public void tryAcquire_AfterIdlePeriod_ShouldEvictIdleBuckets() {
+        // Arrange
+        TokenBucketLimiter limiter = new TokenBucketLimiter(5, 60, 10000, 100, clock);
+        limiter.tryAcquire("idleClient");
+        clock.advance(5000);
+        limiter.tryAcquire("activeClient");
+
+        // Act
+        clock.advance(6000);
+        limiter.tryAcquire("activeClient");
+
+        // Assert
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -3,12 +3,13 @@ package com.openclassrooms.starterjwt.security.services;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import lombok.extern.log4j.Log4j2;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -33,7 +34,6 @@ public class UserDetailsServiceImplTest {
     @Mock
     UserRepository userRepository;
 
-    @InjectMocks
     UserDetailsServiceImpl userDetailsServiceImpl;
 
     @BeforeAll
@@ -48,6 +48,11 @@ public class UserDetailsServiceImplTest {
         log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
     }
 
+    @BeforeEach
+    public void setup() {
+        userDetailsServiceImpl = new UserDetailsServiceImpl(userRepository, 100, 60000L, new SimpleMeterRegistry());
+    }
+
     @Test
     @DisplayName("Calling loadUserByUsername should return user details when user has been found")
     public void loadUserByUsername_ShouldReturnUserDetails() {
@@ -87,4 +92,43 @@ public class UserDetailsServiceImplTest {
                 .hasMessage("User Not Found with email: " + invalidUsername);
     }
 
+    @Test
+    @DisplayName("Loading the same user twice should only query the database once")
+    public void loadUserByUsername_Twice_ShouldBeServedFromCache() {
+        // Arrange
+        String username = "john.doe@mail.com";
+        User user = new User(username, "Doe", "John", "password", false);
+        user.setId(1L);
+        when(userRepository.findByEmail(username)).thenReturn(Optional.of(user));
+
+        // Act
+        UserDetails first = userDetailsServiceImpl.loadUserByUsername(username);
+        UserDetails second = userDetailsServiceImpl.loadUserByUsername(username);
+
+        // Assert
+        assertThat(second).isSameAs(first);
+        verify(userRepository, times(1)).findByEmail(username);
+        assertThat(userDetailsServiceImpl.getUserDetailsCache().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Evicted user details should be reloaded from the database")
+    public void evictUserDetails_ShouldReloadUserFromDatabase() {
+        // Arrange
+        String username = "john.doe@mail.com";
+        User user = new User(username, "Doe", "John", "password", false);
+        user.setId(1L);
+        when(userRepository.findByEmail(username)).thenReturn(Optional.of(user));
+
+        // Act
+        userDetailsServiceImpl.loadUserByUsername(username);
+        userDetailsServiceImpl.evictUserDetails(1L);
+        userDetailsServiceImpl.loadUserByUsername(username);
+        userDetailsServiceImpl.evictUserDetails(username);
+        userDetailsServiceImpl.loadUserByUsername(username);
+
+        // Assert
+        verify(userRepository, times(3)).findByEmail(username);
+    }
+
 }
@@ -0,0 +1,284 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.SessionFullException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class BookingSequencerTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SeatBookingService seatBookingService;
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BookingSequencer bookingSequencer;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        // Every user exists, unless a test says otherwise
+        lenient().when(userRepository.findExistingIds(anyCollection()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+        bookingSequencer = new BookingSequencer(sessionRepository, userRepository, seatBookingService, waitlistService, jdbcTemplate,
+                transactionManager, new SimpleMeterRegistry(), true, 2, 1000, 64, 16, 5000);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        bookingSequencer.destroy();
+    }
+
+    @Test
+    @DisplayName("Parallel bookings of one session should fill it exactly to its capacity, written in batches")
+    public void participate_InParallel_ShouldNeverOversell() throws Exception {
+        // Arrange
+        givenSession(1L, 50);
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        AtomicInteger inserted = new AtomicInteger();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<?> rows = invocation.getArgument(1);
+            inserted.addAndGet(rows.size());
+            return new int[rows.size()];
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        // Act
+        List<Future<?>> bookings = new ArrayList<>();
+        for (long userId = 1; userId <= 500; userId++) {
+            long user = userId;
+            bookings.add(executor.submit(() -> {
+                try {
+                    bookingSequencer.participate(1L, user);
+                    booked.incrementAndGet();
+                } catch (SessionFullException e) {
+                    refused.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> booking : bookings) {
+            booking.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(booked.get()).isEqualTo(50);
+        assertThat(refused.get()).isEqualTo(450);
+        assertThat(inserted.get()).isEqualTo(50);
+        verify(sessionRepository, times(1)).findById(1L);
+        verifyNoInteractions(seatBookingService);
+    }
+
+    @Test
+    @DisplayName("A booking should be rejected from the lane state when the user already participates or the session is unknown")
+    public void participate_WithInvalidBooking_ShouldBeRejectedWithoutWriting() {
+        // Arrange
+        givenSession(1L, null, 7L);
+        when(sessionRepository.findById(2L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookingSequencer.participate(1L, 7L)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> bookingSequencer.noLongerParticipate(1L, 8L)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> bookingSequencer.participate(2L, 7L)).isInstanceOf(NotFoundException.class);
+        verifyNoInteractions(jdbcTemplate, seatBookingService);
+    }
+
+    @Test
+    @DisplayName("A cancellation should release the seat for the next booking")
+    public void noLongerParticipate_ShouldReleaseSeat() {
+        // Arrange
+        givenSession(1L, 1, 7L);
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // Act
+        assertThatThrownBy(() -> bookingSequencer.participate(1L, 8L)).isInstanceOf(SessionFullException.class);
+        bookingSequencer.noLongerParticipate(1L, 7L);
+        bookingSequencer.participate(1L, 8L);
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE FROM PARTICIPATE"), anyList());
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO PARTICIPATE"), anyList());
+    }
+
+    @Test
+    @DisplayName("A rolled back batch should be replayed booking by booking through the atomic statements")
+    public void participate_WhenBatchFails_ShouldReplayThroughSeatBooking() {
+        // Arrange
+        givenSession(1L, null);
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DuplicateKeyException("Duplicate entry"));
+        doThrow(new BadRequestException()).when(seatBookingService).participate(1L, 7L);
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookingSequencer.participate(1L, 7L)).isInstanceOf(BadRequestException.class);
+        verify(seatBookingService).participate(1L, 7L);
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("An invalidated session should be reloaded on its next booking")
+    public void invalidate_ShouldReloadSessionState() {
+        // Arrange
+        givenSession(1L, null);
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // Act
+        bookingSequencer.participate(1L, 7L);
+        bookingSequencer.invalidate(1L);
+        bookingSequencer.participate(1L, 8L);
+
+        // Assert
+        verify(sessionRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Invalidating a session behind a saturated lane should neither block nor be lost")
+    public void invalidate_WithFullQueue_ShouldNotBlock() throws Exception {
+        // Arrange
+        bookingSequencer.destroy();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        bookingSequencer = new BookingSequencer(sessionRepository, userRepository, seatBookingService, waitlistService,
+                jdbcTemplate, transactionManager, meterRegistry, true, 1, 1, 64, 16, 5000);
+        givenSession(1L, null);
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return new int[]{1};
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            Future<?> first = executor.submit(() -> bookingSequencer.participate(1L, 7L));
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<?> second = executor.submit(() -> bookingSequencer.participate(1L, 8L));
+            while (meterRegistry.get("booking.sequencer.queue.size").gauge().value() < 1) {
+                Thread.sleep(1);
+            }
+
+            // Act
+            Future<?> invalidation = executor.submit(() -> bookingSequencer.invalidate(1L));
+
+            // Assert
+            invalidation.get(1, TimeUnit.SECONDS);
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            verify(sessionRepository, times(2)).findById(1L);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A user queued after a cancellation was routed to the lane should get the seat it frees")
+    public void noLongerParticipate_WithUserQueuedMeanwhile_ShouldPromoteInBatch() {
+        // Arrange
+        givenSession(1L, 1, 7L);
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        // Enqueued once the cancellation was submitted, before its batch is written
+        when(waitlistService.promoteNext(1L)).thenReturn(Optional.of(8L));
+
+        // Act
+        bookingSequencer.noLongerParticipate(1L, 7L);
+
+        // Assert
+        verify(waitlistService, times(1)).promoteNext(1L);
+        assertThatThrownBy(() -> bookingSequencer.participate(1L, 9L)).isInstanceOf(SessionFullException.class);
+        assertThatThrownBy(() -> bookingSequencer.participate(1L, 8L)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    @DisplayName("A booking of an unknown user should fail alone, without a rollback, and give its seat back")
+    public void participate_WithUnknownUser_ShouldFailOnlyItsBooking() throws Exception {
+        // Arrange
+        bookingSequencer.destroy();
+        bookingSequencer = new BookingSequencer(sessionRepository, userRepository, seatBookingService, waitlistService,
+                jdbcTemplate, transactionManager, new SimpleMeterRegistry(), true, 1, 1000, 64, 16, 5000);
+        givenSession(1L, 1);
+        when(userRepository.findExistingIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            List<Long> existing = new ArrayList<>(ids);
+            existing.remove(99L);
+            return existing;
+        });
+        when(jdbcTemplate.update(anyString(), (Object[]) any())).thenReturn(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        // Act & Assert
+        assertThatThrownBy(() -> bookingSequencer.participate(1L, 99L)).isInstanceOf(NotFoundException.class);
+        bookingSequencer.participate(1L, 7L);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT INTO PARTICIPATE"), anyList());
+        verify(transactionManager, never()).rollback(any());
+        verifyNoInteractions(seatBookingService);
+    }
+
+    private void givenSession(Long sessionId, Integer capacity, Long... participantIds) {
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(Session.builder().id(sessionId).capacity(capacity).build()));
+        List<SessionRepository.Participation> participations = new ArrayList<>();
+        for (Long participantId : participantIds) {
+            SessionRepository.Participation participation = mock(SessionRepository.Participation.class);
+            when(participation.getUserId()).thenReturn(participantId);
+            participations.add(participation);
+        }
+        when(sessionRepository.findParticipations(Collections.singletonList(sessionId))).thenReturn(participations);
+    }
+}
@@ -0,0 +1,127 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SequenceIds;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the booking throughput of one hot session through the single-writer lane, compared with the atomic
+ * statements path, under the same parallel load.
+ */
+@SpringBootTest(properties = "oc.app.bookingSequencerEnabled=true")
+@Log4j2
+@DisplayName("Booking sequencer throughput Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BookingSequencerThroughputIT {
+    private static final String EMAIL_SUFFIX = "@booking-throughput.test";
+
+    private static final int BOOKINGS = 2000;
+
+    private static final int THREADS = 64;
+
+    private static Instant startedAt;
+
+    @Autowired
+    private SeatBookingService seatBookingService;
+
+    @Autowired
+    private BookingSequencer bookingSequencer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private List<Long> userIds;
+
+    private final List<Long> sessionIds = new ArrayList<>();
+
+    @BeforeAll
+    public void seedUsers() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        long firstUserId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "USERS_SEQ", BOOKINGS);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            users.add(new Object[]{firstUserId + i, "user" + i + EMAIL_SUFFIX});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (id, first_name, last_name, admin, email, password) "
+                + "VALUES (?, 'Throughput', 'Test', false, ?, 'unused')", users);
+        userIds = jdbcTemplate.queryForList("SELECT id FROM USERS WHERE email LIKE ?", Long.class, "%" + EMAIL_SUFFIX);
+    }
+
+    @AfterAll
+    public void removeUsersAndSessions() {
+        for (Long sessionId : sessionIds) {
+            jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id = ?", sessionId);
+            jdbcTemplate.update("DELETE FROM SESSIONS WHERE id = ?", sessionId);
+        }
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE ?", "%" + EMAIL_SUFFIX);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("Both booking paths should book every seat of a hot session, and report their throughput")
+    public void participate_HotSession_ShouldCompareThroughput() throws Exception {
+        long atomicStatementsPerSecond = bookAll("atomic statements", seatBookingService::participate);
+        long sequencerPerSecond = bookAll("booking sequencer", bookingSequencer::participate);
+
+        log.info("Hot session throughput: {} bookings/s with atomic statements, {} bookings/s with the sequencer (x{})",
+                atomicStatementsPerSecond, sequencerPerSecond,
+                String.format("%.2f", (double) sequencerPerSecond / Math.max(atomicStatementsPerSecond, 1)));
+    }
+
+    /**
+     * Books every user on a new session of matching capacity from parallel threads, and returns the bookings per second.
+     */
+    private long bookAll(String path, BiConsumer<Long, Long> participate) throws Exception {
+        Long sessionId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "SESSIONS_SEQ", 1);
+        jdbcTemplate.update("INSERT INTO SESSIONS (id, name, description, date, capacity, teacher_id) "
+                + "VALUES (?, 'Booking throughput', ?, NOW(), ?, 1)", sessionId, path, BOOKINGS);
+        sessionIds.add(sessionId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> bookings = new ArrayList<>();
+        for (Long userId : userIds) {
+            bookings.add(executor.submit(() -> {
+                start.await();
+                participate.accept(sessionId, userId);
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> booking : bookings) {
+            booking.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        executor.shutdown();
+
+        assertEquals(BOOKINGS, jdbcTemplate.queryForObject(
+                "SELECT seats_taken FROM SESSIONS WHERE id = ?", Integer.class, sessionId));
+        assertEquals(BOOKINGS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = ?", Integer.class, sessionId));
+
+        long perSecond = BOOKINGS * 1000L / elapsedMs;
+        log.info("{}: {} bookings on {} threads in {} ms ({} bookings/s)", path, BOOKINGS, THREADS, elapsedMs, perSecond);
+        return perSecond;
+    }
+}
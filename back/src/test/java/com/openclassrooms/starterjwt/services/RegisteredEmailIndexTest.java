@@ -0,0 +1,72 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class RegisteredEmailIndexTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @Test
+    @DisplayName("Emails loaded at startup or added later should be reported, whatever their case")
+    public void mightBeRegistered_ShouldReportLoadedAndAddedEmails() {
+        // Arrange
+        when(userRepository.findAllEmails()).thenReturn(Arrays.asList("yoga@studio.com", "John.Doe@mail.com"));
+        RegisteredEmailIndex registeredEmailIndex = new RegisteredEmailIndex(userRepository, 1000, 0.01);
+
+        // Act
+        registeredEmailIndex.rebuild();
+        registeredEmailIndex.add("jane.doe@mail.com");
+
+        // Assert
+        assertTrue(registeredEmailIndex.mightBeRegistered("yoga@studio.com"));
+        assertTrue(registeredEmailIndex.mightBeRegistered("john.doe@mail.com"));
+        assertTrue(registeredEmailIndex.mightBeRegistered("JANE.DOE@mail.com"));
+        assertFalse(registeredEmailIndex.mightBeRegistered("new.user@mail.com"));
+    }
+
+    @Test
+    @DisplayName("Outgrowing the expected number of emails should rebuild the filter from the table")
+    public void add_WhenSaturated_ShouldRebuild() {
+        // Arrange
+        when(userRepository.findAllEmails()).thenReturn(Arrays.asList("a@mail.com", "b@mail.com", "c@mail.com"));
+        RegisteredEmailIndex registeredEmailIndex = new RegisteredEmailIndex(userRepository, 2, 0.01);
+
+        // Act
+        registeredEmailIndex.add("a@mail.com");
+        registeredEmailIndex.add("b@mail.com");
+        registeredEmailIndex.add("c@mail.com");
+
+        // Assert
+        verify(userRepository, times(1)).findAllEmails();
+        assertTrue(registeredEmailIndex.mightBeRegistered("c@mail.com"));
+    }
+}
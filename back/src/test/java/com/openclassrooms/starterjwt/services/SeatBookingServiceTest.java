@@ -0,0 +1,176 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.SessionFullException;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class SeatBookingServiceTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    private SeatBookingService seatBookingService;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        seatBookingService = new SeatBookingService(sessionRepository, waitlistService);
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If user and session are found, the user can be added to the session with a single insert")
+    public void participate_WhenSessionAndUserFound_ShouldAddUserToSession() {
+        // Arrange
+        when(sessionRepository.takeSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(1);
+
+        // Act
+        seatBookingService.participate(1L, 2L);
+
+        // Assert
+        verify(sessionRepository).takeSeat(1L);
+        verify(sessionRepository).addParticipant(1L, 2L);
+        verify(sessionRepository, never()).findById(any());
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If the user is unknown, participate should throw NotFoundException")
+    public void participate_WhenUserNotFound_ShouldThrowNotFoundException() {
+        // Arrange
+        when(sessionRepository.takeSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenReturn(0);
+
+        // Act & Assert
+        assertThatThrownBy(() -> seatBookingService.participate(1L, 2L)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If the session is unknown, participate should throw NotFoundException without inserting")
+    public void participate_WhenSessionNotFound_ShouldThrowNotFoundException() {
+        // Arrange
+        when(sessionRepository.takeSeat(1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> seatBookingService.participate(1L, 2L)).isInstanceOf(NotFoundException.class);
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If no seat is left, participate should throw SessionFullException without inserting")
+    public void participate_WhenSessionFull_ShouldThrowSessionFullException() {
+        // Arrange
+        when(sessionRepository.takeSeat(1L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> seatBookingService.participate(1L, 2L)).isInstanceOf(SessionFullException.class);
+        verify(sessionRepository, never()).addParticipant(any(), any());
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("Participate should return Bad Request Exception if the user already involves to the session")
+    public void participate_WithAlreadyParticipate_ShouldReturnBadRequestException() {
+        // Arrange
+        when(sessionRepository.takeSeat(1L)).thenReturn(1);
+        when(sessionRepository.addParticipant(1L, 2L)).thenThrow(new DuplicateKeyException("Duplicate entry"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> seatBookingService.participate(1L, 2L)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If user and session are found, the user can be removed from the session with a single delete")
+    public void unParticipate_WhenSessionAndUserFound_ShouldRemoveUserFromSession() {
+        // Arrange
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(1);
+
+        // Act
+        seatBookingService.noLongerParticipate(1L, 2L);
+
+        // Assert
+        verify(sessionRepository).removeParticipant(1L, 2L);
+        verify(sessionRepository).releaseSeat(1L);
+        verify(waitlistService).promoteNext(1L);
+        verify(sessionRepository, never()).existsById(any());
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("A user still in the waitlist should leave it when calling unParticipate")
+    public void unParticipate_WithWaitingUser_ShouldLeaveWaitlist() {
+        // Arrange
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+        when(waitlistService.leave(1L, 2L)).thenReturn(true);
+
+        // Act
+        seatBookingService.noLongerParticipate(1L, 2L);
+
+        // Assert
+        verify(sessionRepository, never()).releaseSeat(any());
+        verify(waitlistService, never()).promoteNext(any());
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If the user is not involving to the session, call unParticipate should throw BadRequestException")
+    public void unParticipate_WithUserNotInSession_ShouldThrowBadRequestException() {
+        // Arrange
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThatThrownBy(() -> seatBookingService.noLongerParticipate(1L, 2L)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Tag("Participation")
+    @Test
+    @DisplayName("If the session is unknown, call unParticipate should throw NotFoundException")
+    public void unParticipate_WithUnknownSession_ShouldThrowNotFoundException() {
+        // Arrange
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+        when(sessionRepository.existsById(1L)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> seatBookingService.noLongerParticipate(1L, 2L)).isInstanceOf(NotFoundException.class);
+    }
+}
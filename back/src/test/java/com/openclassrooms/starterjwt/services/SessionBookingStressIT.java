@@ -0,0 +1,139 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SequenceIds;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Fires thousands of parallel bookings at one session, as when a popular class opens, and checks that exactly the
+ * capacity is booked, no seat oversold nor lost, and that everybody else is queued on the waitlist in FIFO order.
+ */
+@SpringBootTest
+@Log4j2
+@DisplayName("Session booking contention Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionBookingStressIT {
+    private static final String EMAIL_SUFFIX = "@booking-stress.test";
+
+    private static final int BOOKINGS = 2000;
+
+    private static final int CAPACITY = 150;
+
+    private static final int THREADS = 64;
+
+    private static Instant startedAt;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long sessionId;
+
+    private List<Long> userIds;
+
+    @BeforeAll
+    public void seedUsersAndSession() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        long firstUserId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "USERS_SEQ", BOOKINGS);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            users.add(new Object[]{firstUserId + i, "user" + i + EMAIL_SUFFIX});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (id, first_name, last_name, admin, email, password) "
+                + "VALUES (?, 'Stress', 'Test', false, ?, 'unused')", users);
+        userIds = jdbcTemplate.queryForList("SELECT id FROM USERS WHERE email LIKE ?", Long.class, "%" + EMAIL_SUFFIX);
+
+        sessionId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "SESSIONS_SEQ", 1);
+        jdbcTemplate.update("INSERT INTO SESSIONS (id, name, description, date, capacity, teacher_id) "
+                + "VALUES (?, 'Booking stress', 'Booking stress test session', NOW(), ?, 1)", sessionId, CAPACITY);
+    }
+
+    @AfterAll
+    public void removeUsersAndSession() {
+        jdbcTemplate.update("DELETE FROM WAITLIST WHERE session_id = ?", sessionId);
+        jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id = ?", sessionId);
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE id = ?", sessionId);
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE ?", "%" + EMAIL_SUFFIX);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("Parallel bookings should fill the session exactly to its capacity and queue the others")
+    public void participate_InParallel_ShouldNeverOversell() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> bookings = new ArrayList<>();
+        for (Long userId : userIds) {
+            bookings.add(executor.submit(() -> {
+                start.await();
+                try {
+                    if (sessionService.participate(sessionId, userId).isPresent()) {
+                        waitlisted.incrementAndGet();
+                    } else {
+                        booked.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Unexpected booking failure", e);
+                    failed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> booking : bookings) {
+            booking.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        executor.shutdown();
+
+        log.info("{} bookings on {} threads in {} ms ({} bookings/s), {} booked, {} waitlisted",
+                BOOKINGS, THREADS, elapsedMs, BOOKINGS * 1000L / Math.max(elapsedMs, 1), booked.get(), waitlisted.get());
+
+        assertEquals(0, failed.get());
+        assertEquals(CAPACITY, booked.get());
+        assertEquals(BOOKINGS - CAPACITY, waitlisted.get());
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject(
+                "SELECT seats_taken FROM SESSIONS WHERE id = ?", Integer.class, sessionId));
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = ?", Integer.class, sessionId));
+
+        // The positions follow the order of the WAITLIST rows, the head being the lowest id
+        List<Long> waitingUserIds = jdbcTemplate.queryForList(
+                "SELECT user_id FROM WAITLIST WHERE session_id = ? ORDER BY id", Long.class, sessionId);
+        assertEquals(BOOKINGS - CAPACITY, waitingUserIds.size());
+        for (int i = 0; i < waitingUserIds.size(); i++) {
+            assertEquals(Optional.of(i + 1), waitlistService.positionOf(sessionId, waitingUserIds.get(i)));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class SessionExportServiceTest {
+
+    private static Instant startedAt;
+
+    private static final Timestamp DATE = Timestamp.from(Instant.parse("2030-01-01T10:00:00Z"));
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private SessionExportService sessionExportService;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        sessionExportService = new SessionExportService(jdbcTemplate, objectMapper);
+    }
+
+    @Test
+    @DisplayName("The JSON Lines export should write one session per line with its participant ids")
+    public void exportJsonLines_ShouldGroupParticipantsPerSession() throws Exception {
+        // Arrange
+        givenCatalog();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        sessionExportService.exportJsonLines(output);
+
+        // Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("id").asLong()).isEqualTo(1L);
+        assertThat(first.get("users").toString()).isEqualTo("[3,5]");
+        assertThat(first.get("participantCount").asInt()).isEqualTo(2);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertThat(second.get("users").size()).isZero();
+        assertThat(second.get("capacity").isNull()).isTrue();
+    }
+
+    @Test
+    @DisplayName("The CSV export should quote the values holding separators and list the participant ids")
+    public void exportCsv_ShouldEscapeValuesAndListParticipants() throws Exception {
+        // Arrange
+        givenCatalog();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        sessionExportService.exportCsv(output);
+
+        // Assert
+        String[] lines = output.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(lines).containsExactly(
+                SessionExportService.CSV_HEADER,
+                "1,\"Morning, \"\"flow\"\"\",2030-01-01T10:00:00Z,1,Description,,2,3 5,,",
+                "2,Evening,2030-01-01T10:00:00Z,1,Description,,0,,,");
+    }
+
+    @Test
+    @DisplayName("Only the JSON Lines and CSV formats should be supported")
+    public void supports_ShouldAcceptKnownFormats() {
+        assertThat(sessionExportService.supports("jsonl")).isTrue();
+        assertThat(sessionExportService.supports("csv")).isTrue();
+        assertThat(sessionExportService.supports("xml")).isFalse();
+    }
+
+    private void givenCatalog() throws SQLException {
+        // Session 1 has two participants, session 2 none
+        ResultSet[] rows = {
+                row(1L, "Morning, \"flow\"", 3L),
+                row(1L, "Morning, \"flow\"", 5L),
+                row(2L, "Evening", null)
+        };
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private static ResultSet row(Long sessionId, String name, Long userId) throws SQLException {
+        ResultSet row = mock(ResultSet.class, withSettings().lenient());
+        when(row.getLong("id")).thenReturn(sessionId);
+        when(row.getString("name")).thenReturn(name);
+        when(row.getTimestamp("date")).thenReturn(DATE);
+        when(row.getObject("teacher_id", Long.class)).thenReturn(1L);
+        when(row.getString("description")).thenReturn("Description");
+        when(row.getLong("user_id")).thenReturn(userId == null ? 0L : userId);
+        when(row.wasNull()).thenReturn(userId == null);
+        return row;
+    }
+}
@@ -0,0 +1,135 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.repository.SequenceIds;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the session listing read through Session entities and the mapper with the DTO projection, over
+ * {@value #SESSIONS} sessions with participants.
+ */
+@SpringBootTest
+@Log4j2
+@DisplayName("Session read path Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionReadPathIT {
+    private static final String SESSION_NAME = "Read path benchmark";
+
+    private static final String EMAIL_SUFFIX = "@session-read-path.test";
+
+    private static final int SESSIONS = 10_000;
+
+    private static final int PARTICIPANTS = 20;
+
+    private static final int ITERATIONS = 10;
+
+    private static Instant startedAt;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionMapper sessionMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    public void seedSessions() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        long firstUserId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "USERS_SEQ", PARTICIPANTS);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            users.add(new Object[]{firstUserId + i, "user" + i + EMAIL_SUFFIX});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (id, first_name, last_name, admin, email, password) "
+                + "VALUES (?, 'Read', 'Path', false, ?, 'unused')", users);
+        List<Long> userIds = jdbcTemplate.queryForList("SELECT id FROM USERS WHERE email LIKE ?", Long.class, "%" + EMAIL_SUFFIX);
+
+        long firstSessionId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "SESSIONS_SEQ", SESSIONS);
+        List<Object[]> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(new Object[]{firstSessionId + i, "Session " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO SESSIONS (id, name, description, date, teacher_id) "
+                + "VALUES (?, '" + SESSION_NAME + "', ?, NOW(), 1)", sessions);
+        // Every session gets a share of the participants
+        for (int i = 0; i < userIds.size(); i++) {
+            jdbcTemplate.update("INSERT INTO PARTICIPATE (session_id, user_id) "
+                    + "SELECT id, ? FROM SESSIONS WHERE name = ? AND MOD(id, ?) <= ?", userIds.get(i), SESSION_NAME, PARTICIPANTS, i);
+        }
+        jdbcTemplate.update("UPDATE SESSIONS SET seats_taken = (SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = id) "
+                + "WHERE name = ?", SESSION_NAME);
+    }
+
+    @AfterAll
+    public void removeSessions() {
+        jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id IN (SELECT id FROM SESSIONS WHERE name = ?)", SESSION_NAME);
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE name = ?", SESSION_NAME);
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE ?", "%" + EMAIL_SUFFIX);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("Both read paths should return the same listing, and report their latency")
+    public void findAll_ShouldCompareReadPaths() {
+        List<SessionDto> mapped = benchmarkedSessions(() -> sessionMapper.toDto(sessionService.findAll()));
+        List<SessionDto> projected = benchmarkedSessions(sessionService::findAllDtos);
+        assertEquals(SESSIONS, projected.size());
+        for (int i = 0; i < SESSIONS; i++) {
+            assertEquals(mapped.get(i).getTeacher_id(), projected.get(i).getTeacher_id());
+            assertEquals(mapped.get(i).getUsers(), projected.get(i).getUsers());
+            assertEquals(mapped.get(i).getParticipantCount(), projected.get(i).getParticipantCount());
+        }
+
+        long entityMs = measure("entities and mapper", () -> sessionMapper.toDto(sessionService.findAll()));
+        long projectionMs = measure("DTO projection", sessionService::findAllDtos);
+
+        log.info("Listing of {} sessions: {} ms with entities, {} ms with the projection (x{})",
+                SESSIONS, entityMs, projectionMs, String.format("%.2f", (double) entityMs / Math.max(projectionMs, 1)));
+    }
+
+    private List<SessionDto> benchmarkedSessions(Supplier<List<SessionDto>> read) {
+        return read.get().stream()
+                .filter(session -> SESSION_NAME.equals(session.getName()))
+                .sorted(Comparator.comparing(SessionDto::getId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Average milliseconds of a whole listing, after a warm up run.
+     */
+    private long measure(String path, Supplier<List<SessionDto>> read) {
+        read.get();
+        long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.get();
+        }
+        long averageMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) / ITERATIONS;
+        log.info("{}: {} ms per listing", path, averageMs);
+        return averageMs;
+    }
+}
@@ -1,16 +1,21 @@
 package com.openclassrooms.starterjwt.services;
 
 
+import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.SessionFullException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.SessionFilter;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
-import com.openclassrooms.starterjwt.repository.UserRepository;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -32,7 +37,13 @@ public class SessionServiceTest {
     private SessionRepository sessionRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private SeatBookingService seatBookingService;
+
+    @Mock
+    private BookingSequencer bookingSequencer;
+
+    @Mock
+    private WaitlistService waitlistService;
 
     private SessionService sessionService;
 
@@ -50,7 +61,7 @@ public class SessionServiceTest {
 
     @BeforeEach
     public void setup() {
-        sessionService = new SessionService(sessionRepository, userRepository);
+        sessionService = new SessionService(sessionRepository, seatBookingService, bookingSequencer, waitlistService);
     }
 
     @AfterEach
@@ -90,6 +101,19 @@ public class SessionServiceTest {
         assertThat(sessionRepository.existsById(1L)).isFalse();
     }
 
+    @Tag("CRUD")
+    @Test
+    @DisplayName("Deleting a session with waiting users should empty its waitlist before deleting the session")
+    public void delete_WithWaiters_ShouldRemoveWaitlistFirst() {
+        // Act
+        sessionService.delete(1L);
+
+        // Assert
+        InOrder inOrder = inOrder(waitlistService, sessionRepository);
+        inOrder.verify(waitlistService).removeSession(1L);
+        inOrder.verify(sessionRepository).deleteById(1L);
+    }
+
     @Tag("CRUD")
     @Test
     @DisplayName("Find all sessions")
@@ -125,6 +149,100 @@ public class SessionServiceTest {
     }
 
 
+    @Tag("CRUD")
+    @Test
+    @DisplayName("Participant ids should be grouped per session, with an empty list for sessions without participant")
+    public void findParticipantIds_ShouldGroupPerSession() {
+        // Arrange
+        SessionRepository.Participation first = mock(SessionRepository.Participation.class);
+        when(first.getSessionId()).thenReturn(1L);
+        when(first.getUserId()).thenReturn(3L);
+        SessionRepository.Participation second = mock(SessionRepository.Participation.class);
+        when(second.getSessionId()).thenReturn(1L);
+        when(second.getUserId()).thenReturn(4L);
+        when(sessionRepository.findParticipations(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(first, second));
+
+        // Act
+        Map<Long, List<Long>> participantIds = sessionService.findParticipantIds(Arrays.asList(1L, 2L));
+
+        // Assert
+        assertEquals(Arrays.asList(3L, 4L), participantIds.get(1L));
+        assertEquals(Collections.emptyList(), participantIds.get(2L));
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("Participant ids of no session should not query the repository")
+    public void findParticipantIds_WithoutSession_ShouldNotQuery() {
+        // Act
+        Map<Long, List<Long>> participantIds = sessionService.findParticipantIds(Collections.emptyList());
+
+        // Assert
+        assertTrue(participantIds.isEmpty());
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("A page of sessions should be read from the repository with the requested size")
+    public void findPage_ShouldReadRequestedSize() {
+        // Arrange
+        SessionFilter filter = new SessionFilter();
+        filter.setTeacherId(1L);
+        List<Session> sessions = Collections.singletonList(new Session());
+        when(sessionRepository.findPage(any(), eq(10))).thenReturn(sessions);
+
+        // Act
+        List<Session> firstPage = sessionService.findPage(filter, null, 10);
+        List<Session> followingPage = sessionService.findPage(filter, new SessionCursor(new Date(), 5L), 10);
+
+        // Assert
+        assertEquals(sessions, firstPage);
+        assertEquals(sessions, followingPage);
+        verify(sessionRepository, times(2)).findPage(any(), eq(10));
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("A page of projected sessions should get its participants from a single id query")
+    public void findDtoPage_ShouldFillParticipantsFromOneQuery() {
+        // Arrange
+        SessionDto first = new SessionDto(1L, "First", new Date(), 1L, "Description", null, null, null);
+        SessionDto second = new SessionDto(2L, "Second", new Date(), 1L, "Description", 10, null, null);
+        when(sessionRepository.findDtoPage(any(), eq(2))).thenReturn(Arrays.asList(first, second));
+        SessionRepository.Participation participation = mock(SessionRepository.Participation.class);
+        when(participation.getSessionId()).thenReturn(2L);
+        when(participation.getUserId()).thenReturn(7L);
+        when(sessionRepository.findParticipations(Arrays.asList(1L, 2L))).thenReturn(Collections.singletonList(participation));
+
+        // Act
+        List<SessionDto> sessions = sessionService.findDtoPage(new SessionFilter(), null, 2);
+
+        // Assert
+        assertEquals(Arrays.asList(first, second), sessions);
+        assertEquals(Collections.emptyList(), first.getUsers());
+        assertEquals(0, first.getParticipantCount());
+        assertEquals(Collections.singletonList(7L), second.getUsers());
+        assertEquals(1, second.getParticipantCount());
+        verify(sessionRepository, times(1)).findParticipations(any());
+        verify(sessionRepository, never()).findPage(any(), anyInt());
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("An unknown session should not be projected")
+    public void getDtoById_WhenSessionDoesNotExist_ShouldReturnNull() {
+        // Arrange
+        when(sessionRepository.findDtoPage(any(), eq(1))).thenReturn(Collections.emptyList());
+
+        // Act
+        SessionDto session = sessionService.getDtoById(1L);
+
+        // Assert
+        assertNull(session);
+        verify(sessionRepository, never()).findParticipations(any());
+    }
+
     @Tag("CRUD")
     @Test
     @DisplayName("Update a session")
@@ -140,95 +258,158 @@ public class SessionServiceTest {
         assertNotNull(updatedSession);
         assertEquals(1L, updatedSession.getId());
         verify(sessionRepository).save(session);
+        verify(sessionRepository, never()).recountSeats(any());
+        verify(bookingSequencer).invalidate(1L);
     }
 
-    @Tag("Participation")
+    @Tag("CRUD")
     @Test
-    @DisplayName("If user and session are found, the user can be added to the session")
-    public void participate_WhenSessionAndUserFound_ShouldAddUserToSession() {
+    @DisplayName("Updating the participants of a session should recount its seats")
+    void update_WithParticipants_ShouldRecountSeats() {
         // Arrange
-        Long sessionId = 1L;
-        Long userId = 1L;
         Session session = new Session();
         session.setUsers(new ArrayList<>());
-        User user = new User();
+        when(sessionRepository.save(session)).thenReturn(session);
+
+        // Act
+        sessionService.update(1L, session);
+
+        // Assert
+        verify(sessionRepository).recountSeats(1L);
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("Updating a session with more participants than its capacity should be rejected")
+    void update_OverCapacity_ShouldThrow() {
+        // Arrange
+        Session session = Session.builder().capacity(1).users(Arrays.asList(new User(), new User())).build();
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        // Act & Assert
+        assertThatThrownBy(() -> sessionService.update(1L, session)).isInstanceOf(BadRequestException.class);
+        verify(sessionRepository, never()).save(any());
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("Seats freed by an update should go to the waiting users")
+    void update_FreeingSeats_ShouldPromoteWaitingUsers() {
+        // Arrange
+        Session session = Session.builder().capacity(3).users(new ArrayList<>()).build();
+        when(sessionRepository.save(session)).thenReturn(session);
+        when(waitlistService.promoteNext(1L)).thenReturn(Optional.of(7L), Optional.of(8L), Optional.empty());
 
         // Act
-        sessionService.participate(sessionId, userId);
+        sessionService.update(1L, session);
 
         // Assert
-        assertTrue(session.getUsers().contains(user));
-        verify(sessionRepository).save(session);
+        InOrder inOrder = inOrder(sessionRepository, waitlistService);
+        inOrder.verify(sessionRepository).recountSeats(1L);
+        inOrder.verify(waitlistService, times(3)).promoteNext(1L);
     }
 
     @Tag("Participation")
     @Test
-    @DisplayName("If user and session are found, the user can be removed from the session")
-    public void unParticipate_WhenSessionAndUserFound_ShouldRemoveUserFromSession() {
-        // Arrange
-        Long sessionId = 1L;
-        Long userId = 1L;
-        User user = new User();
-        user.setId(userId);
-        Session session = new Session();
-        session.setUsers(new ArrayList<>(Collections.singletonList(user)));
+    @DisplayName("With the sequencer disabled, bookings should go through the atomic statements")
+    public void participate_WithoutSequencer_ShouldUseSeatBooking() {
+        // Act
+        sessionService.participate(1L, 2L);
+        sessionService.noLongerParticipate(1L, 2L);
+
+        // Assert
+        verify(seatBookingService).participate(1L, 2L);
+        verify(seatBookingService).noLongerParticipate(1L, 2L);
+        verify(bookingSequencer, never()).participate(any(), any());
+    }
 
-        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+    @Tag("Participation")
+    @Test
+    @DisplayName("With the sequencer enabled, bookings should go through the lane of the session")
+    public void participate_WithSequencer_ShouldUseSequencer() {
+        // Arrange
+        when(bookingSequencer.isEnabled()).thenReturn(true);
 
         // Act
-        sessionService.noLongerParticipate(sessionId, userId);
+        sessionService.participate(1L, 2L);
+        sessionService.noLongerParticipate(1L, 2L);
 
         // Assert
-        assertFalse(session.getUsers().contains(user));
-        verify(sessionRepository).save(session);
+        verify(bookingSequencer).participate(1L, 2L);
+        verify(bookingSequencer).noLongerParticipate(1L, 2L);
+        verifyNoInteractions(seatBookingService);
     }
 
     @Tag("Participation")
     @Test
-    @DisplayName("Participate should return Bad Request Exception if the user already involves to the session")
-    public void participate_WithAlreadyParticipate_ShouldReturnBadRequestException() {
+    @DisplayName("A user finding the session full should be queued and get their waitlist position")
+    public void participate_WhenSessionFull_ShouldReturnWaitlistPosition() {
         // Arrange
-        Long id = 1L;
-        Long userId = 1L;
-        User mockUser = mock(User.class);
-        Session mockSession = mock(Session.class);
-        List<User> users = new ArrayList<>();
-        users.add(mockUser);
+        doThrow(new SessionFullException()).when(seatBookingService).participate(1L, 2L);
+        when(waitlistService.enqueue(1L, 2L)).thenReturn(3);
 
         // Act
-        when(mockUser.getId()).thenReturn(userId);
-        when(sessionRepository.findById(id)).thenReturn(Optional.of(mockSession));
-        when(userRepository.findById(userId)).thenReturn(Optional.of(mockUser));
-        when(mockSession.getUsers()).thenReturn(users);
+        Optional<Integer> position = sessionService.participate(1L, 2L);
 
         // Assert
-        assertThatThrownBy(() -> {
-            sessionService.participate(id, userId);
-        }).isInstanceOf(BadRequestException.class);
-        verify(sessionRepository).findById(id);
-        verify(userRepository).findById(userId);
+        assertEquals(Optional.of(3), position);
     }
 
     @Tag("Participation")
     @Test
-    @DisplayName("If the user is not involving to the session, call unParticipate should throw BadRequestException")
-    public void unParticipate_WithUserNotInSession_ShouldThrowBadRequestException() {
+    @DisplayName("With a waitlist, cancellations should bypass the sequencer so that the promotion shares their transaction")
+    public void noLongerParticipate_WithWaitlist_ShouldUseSeatBooking() {
         // Arrange
-        Long id = 1L;
-        Long userId = 1L;
-        Session mockSession = mock(Session.class);
-        List<User> mockUsers = new ArrayList<>();
+        when(bookingSequencer.isEnabled()).thenReturn(true);
+        when(waitlistService.hasWaiting(1L)).thenReturn(true);
 
         // Act
-        when(sessionRepository.findById(id)).thenReturn(Optional.of(mockSession));
-        when(mockSession.getUsers()).thenReturn(mockUsers);
+        sessionService.noLongerParticipate(1L, 2L);
 
         // Assert
-        assertThatThrownBy(() -> {
-            sessionService.noLongerParticipate(id, userId);
-        }).isInstanceOf(BadRequestException.class);
+        verify(seatBookingService).noLongerParticipate(1L, 2L);
+        verify(bookingSequencer).invalidate(1L);
+        verify(bookingSequencer, never()).noLongerParticipate(any(), any());
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("Within a transaction, the sequencer should only be invalidated once the update is committed")
+    void update_InTransaction_ShouldInvalidateAfterCommit() {
+        // Arrange
+        Session session = new Session();
+        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // Act
+            sessionService.update(1L, session);
+
+            // Assert
+            verify(bookingSequencer, never()).invalidate(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(bookingSequencer).invalidate(1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Tag("CRUD")
+    @Test
+    @DisplayName("A rolled back delete should leave the sequencer state untouched")
+    void delete_RolledBack_ShouldNotInvalidate() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // Act
+            sessionService.delete(1L);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            // Assert
+            verify(bookingSequencer, never()).invalidate(any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 }
@@ -0,0 +1,213 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.response.UserImportResponse;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.BoundedPasswordEncoder;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Mock
+    private RegisteredEmailIndex registeredEmailIndex;
+
+    private UserImportService userImportService;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        userImportService = new UserImportService(userRepository, passwordEncoder, registeredEmailIndex,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), 2, 1);
+    }
+
+    @Test
+    @DisplayName("A JSON import should insert the valid rows in batches and report the rejected ones")
+    @SuppressWarnings("unchecked")
+    public void importJson_ShouldBatchValidRowsAndReportErrors() throws Exception {
+        // Arrange
+        InputStream json = stream("["
+                + "{\"email\":\"john.doe@mail.com\",\"firstName\":\"John\",\"lastName\":\"Doe\",\"password\":\"123456\"},"
+                + "{\"email\":\"not-an-email\",\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"password\":\"123456\"},"
+                + "{\"email\":\"JOHN.DOE@mail.com\",\"firstName\":\"John\",\"lastName\":\"Doe\",\"password\":\"123456\"},"
+                + "{\"email\":\"yoga@studio.com\",\"firstName\":\"Yoga\",\"lastName\":\"Studio\",\"password\":\"123456\"},"
+                + "{\"email\":\"jane.doe@mail.com\",\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"password\":\"123456\"}"
+                + "]");
+        when(userRepository.findExistingEmails(anyCollection()))
+                .thenReturn(Collections.singletonList("yoga@studio.com"))
+                .thenReturn(Collections.emptyList());
+        when(passwordEncoder.encodeAsync("123456")).thenReturn(CompletableFuture.completedFuture("hash"));
+
+        // Act
+        UserImportResponse response = userImportService.importJson(json);
+
+        // Assert
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(3);
+        assertThat(response.getErrors()).extracting(UserImportResponse.RowError::getRow).containsExactly(2, 3, 4);
+        assertThat(response.getErrors().get(1).getMessage()).isEqualTo("Email appears more than once in the import");
+        assertThat(response.getErrors().get(2).getMessage()).isEqualTo("Email is already taken");
+
+        ArgumentCaptor<List<User>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(userRepository, times(2)).saveAll(batchCaptor.capture());
+        assertThat(batchCaptor.getAllValues()).extracting(List::size).containsExactly(1, 1);
+        verify(registeredEmailIndex).add("john.doe@mail.com");
+        verify(registeredEmailIndex).add("jane.doe@mail.com");
+    }
+
+    @Test
+    @DisplayName("A CSV import should map the columns from the header, whatever their order")
+    @SuppressWarnings("unchecked")
+    public void importCsv_ShouldMapColumnsFromHeader() throws Exception {
+        // Arrange
+        InputStream csv = stream("password,lastName,firstName,email\n"
+                + "123456,Doe,John,john.doe@mail.com\n"
+                + "\n"
+                + "\"12,3456\",\"O\"\"Neil\",Jane,jane.oneil@mail.com\n");
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Collections.emptyList());
+        when(passwordEncoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("hash"));
+
+        // Act
+        UserImportResponse response = userImportService.importCsv(csv);
+
+        // Assert
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailed()).isZero();
+        verify(passwordEncoder).encodeAsync("12,3456");
+        ArgumentCaptor<List<User>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(userRepository).saveAll(batchCaptor.capture());
+        assertThat(batchCaptor.getValue().get(1).getLastName()).isEqualTo("O\"Neil");
+        assertThat(batchCaptor.getValue().get(1).getPassword()).isEqualTo("hash");
+    }
+
+    @Test
+    @DisplayName("A CSV import without the expected header should be rejected as a whole")
+    public void importCsv_WithoutHeader_ShouldReportError() throws Exception {
+        // Act
+        UserImportResponse response = userImportService.importCsv(stream("email,password\njohn.doe@mail.com,123456\n"));
+
+        // Assert
+        assertThat(response.getImported()).isZero();
+        assertThat(response.getErrors()).hasSize(1);
+        verifyNoInteractions(userRepository, passwordEncoder);
+    }
+
+    @Test
+    @DisplayName("A batch failing on the unique constraint should be retried row by row")
+    public void importJson_WhenBatchViolatesConstraint_ShouldInsertRowByRow() throws Exception {
+        // Arrange
+        InputStream json = stream("["
+                + "{\"email\":\"john.doe@mail.com\",\"firstName\":\"John\",\"lastName\":\"Doe\",\"password\":\"123456\"},"
+                + "{\"email\":\"jane.doe@mail.com\",\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"password\":\"123456\"}"
+                + "]");
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Collections.emptyList());
+        when(passwordEncoder.encodeAsync("123456")).thenReturn(CompletableFuture.completedFuture("hash"));
+        when(userRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(userRepository.save(any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        UserImportResponse response = userImportService.importJson(json);
+
+        // Assert
+        assertThat(response.getImported()).isEqualTo(1);
+        assertThat(response.getErrors()).extracting(UserImportResponse.RowError::getEmail)
+                .containsExactly("john.doe@mail.com");
+        verify(registeredEmailIndex).add("jane.doe@mail.com");
+    }
+
+    @Test
+    @DisplayName("Rows whose password hashing is refused by the saturated pool should be reported")
+    public void importJson_WhenHashingRejected_ShouldReportRow() throws Exception {
+        // Arrange
+        InputStream json = stream("[{\"email\":\"john.doe@mail.com\",\"firstName\":\"John\",\"lastName\":\"Doe\",\"password\":\"123456\"}]");
+        CompletableFuture<String> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new ServiceUnavailableException());
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Collections.emptyList());
+        when(passwordEncoder.encodeAsync("123456")).thenReturn(rejected);
+
+        // Act
+        UserImportResponse response = userImportService.importJson(json);
+
+        // Assert
+        assertThat(response.getImported()).isZero();
+        assertThat(response.getErrors().get(0).getMessage()).isEqualTo("Password could not be hashed, retry later");
+        verify(userRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("A JSON syntax error should stop the import on its row and keep the rows already imported")
+    public void importJson_WithSyntaxError_ShouldStopAndReportRow() throws Exception {
+        // Arrange
+        InputStream json = stream("["
+                + "{\"email\":\"john.doe@mail.com\",\"firstName\":\"John\",\"lastName\":\"Doe\",\"password\":\"123456\"},"
+                + "{\"email\":\"jane.doe@mail.com\",\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"password\":\"123456\"},"
+                + "{\"email\":\"yoga@studio.com\" \"firstName\"");
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Collections.emptyList());
+        when(passwordEncoder.encodeAsync("123456")).thenReturn(CompletableFuture.completedFuture("hash"));
+
+        // Act
+        UserImportResponse response = userImportService.importJson(json);
+
+        // Assert
+        assertThat(response.getImported()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getErrors()).extracting(UserImportResponse.RowError::getRow).containsExactly(3);
+        assertThat(response.getErrors().get(0).getMessage()).startsWith("Malformed JSON, import stopped");
+        verify(userRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Quoted CSV values may contain commas and doubled quotes")
+    public void parseCsvLine_ShouldHonourQuotes() {
+        assertThat(UserImportService.parseCsvLine("a,\"b,c\",\"d\"\"e\",")).isEqualTo(Arrays.asList("a", "b,c", "d\"e", ""));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,20 +1,29 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.UnknownReferenceException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @Log4j2
@@ -26,6 +35,12 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private WaitlistService waitlistService;
+
     private UserService userService;
 
     @BeforeAll
@@ -42,7 +57,7 @@ public class UserServiceTest {
 
     @BeforeEach
     public void setup() {
-        userService = new UserService(userRepository);
+        userService = new UserService(userRepository, userDetailsService, waitlistService);
     }
 
     @AfterEach
@@ -62,9 +77,22 @@ public class UserServiceTest {
 
         // Assert
         verify(userRepository).deleteById(userId);
+        verify(userDetailsService).evictUserDetails(userId);
         assertThat(userRepository.existsById(1L)).isFalse();
     }
 
+    @Test
+    @DisplayName("Deleting a waiting user should take them out of every waitlist before deleting them")
+    public void delete_WhenWaiting_ShouldRemoveFromWaitlistsFirst() {
+        // Act
+        userService.delete(1L);
+
+        // Assert
+        InOrder inOrder = inOrder(waitlistService, userRepository);
+        inOrder.verify(waitlistService).removeUser(1L);
+        inOrder.verify(userRepository).deleteById(1L);
+    }
+
     @Test
     @DisplayName("Get user by its ID")
     public void findById_WhenUserExists_ShouldReturnUser() {
@@ -97,4 +125,48 @@ public class UserServiceTest {
         assertNull(foundUser);
     }
 
+    @Test
+    @DisplayName("References to users should be checked with a single query, duplicates kept once")
+    public void getReferences_ShouldCheckIdsOnceAndReturnReferences() {
+        // Arrange
+        User first = new User();
+        first.setId(1L);
+        User second = new User();
+        second.setId(2L);
+        when(userRepository.findExistingIds(Arrays.asList(1L, 2L, 1L))).thenReturn(Arrays.asList(1L, 2L));
+        when(userRepository.getById(1L)).thenReturn(first);
+        when(userRepository.getById(2L)).thenReturn(second);
+
+        // Act
+        List<User> users = userService.getReferences(Arrays.asList(1L, 2L, 1L));
+
+        // Assert
+        assertThat(users).isEqualTo(Arrays.asList(first, second));
+        verify(userRepository, times(1)).findExistingIds(anyList());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Unknown user ids should be reported instead of becoming null references")
+    public void getReferences_WithUnknownIds_ShouldThrowUnknownReference() {
+        // Arrange
+        when(userRepository.findExistingIds(Arrays.asList(1L, 3L, 4L))).thenReturn(Collections.singletonList(1L));
+
+        // Act & Assert
+        assertThatThrownBy(() -> userService.getReferences(Arrays.asList(1L, 3L, 4L)))
+                .isInstanceOf(UnknownReferenceException.class)
+                .hasMessage("Error: Unknown user ids [3, 4]!");
+        verify(userRepository, never()).getById(anyLong());
+    }
+
+    @Test
+    @DisplayName("An empty participant list should not query the users")
+    public void getReferences_WithoutIds_ShouldNotQuery() {
+        // Act
+        List<User> users = userService.getReferences(Collections.emptyList());
+
+        // Assert
+        assertThat(users.isEmpty()).isTrue();
+        verifyNoInteractions(userRepository);
+    }
 }
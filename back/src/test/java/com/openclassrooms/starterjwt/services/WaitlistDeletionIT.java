@@ -0,0 +1,102 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SequenceIds;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Deletes a waiting user and a session with waiting users against the WAITLIST foreign keys.
+ */
+@SpringBootTest
+@Log4j2
+@DisplayName("Waitlist deletion Integration Tests")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WaitlistDeletionIT {
+    private static final String EMAIL_SUFFIX = "@waitlist-deletion.test";
+
+    private static Instant startedAt;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long firstUserId;
+
+    private long teacherId;
+
+    private long sessionId;
+
+    @BeforeAll
+    public void seedSession() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+
+        firstUserId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "USERS_SEQ", 3);
+        for (int i = 0; i < 3; i++) {
+            jdbcTemplate.update("INSERT INTO USERS (id, first_name, last_name, admin, email, password) "
+                    + "VALUES (?, 'Waitlist', 'Deletion', false, ?, 'unused')", firstUserId + i, "user" + i + EMAIL_SUFFIX);
+        }
+        teacherId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "TEACHERS_SEQ", 1);
+        jdbcTemplate.update("INSERT INTO TEACHERS (id, first_name, last_name) VALUES (?, 'Waitlist', 'Deletion')", teacherId);
+        sessionId = SequenceIds.reserve(jdbcTemplate, transactionTemplate, "SESSIONS_SEQ", 1);
+        jdbcTemplate.update("INSERT INTO SESSIONS (id, name, description, date, capacity, teacher_id) "
+                + "VALUES (?, 'Waitlist deletion', 'Waitlist deletion test session', NOW(), 1, ?)", sessionId, teacherId);
+    }
+
+    @AfterAll
+    public void removeSession() {
+        jdbcTemplate.update("DELETE FROM WAITLIST WHERE session_id = ?", sessionId);
+        jdbcTemplate.update("DELETE FROM PARTICIPATE WHERE session_id = ?", sessionId);
+        jdbcTemplate.update("DELETE FROM SESSIONS WHERE id = ?", sessionId);
+        jdbcTemplate.update("DELETE FROM TEACHERS WHERE id = ?", teacherId);
+        jdbcTemplate.update("DELETE FROM USERS WHERE email LIKE ?", "%" + EMAIL_SUFFIX);
+
+        log.info("Test duration : {} ms", Duration.between(startedAt, Instant.now()).toMillis());
+    }
+
+    @Test
+    @DisplayName("Waiting users and sessions with waiting users should be deletable")
+    public void delete_WithWaiters_ShouldRemoveWaitlistRows() {
+        // Arrange
+        assertEquals(Optional.empty(), sessionService.participate(sessionId, firstUserId));
+        assertEquals(Optional.of(1), sessionService.participate(sessionId, firstUserId + 1));
+        assertEquals(Optional.of(2), sessionService.participate(sessionId, firstUserId + 2));
+
+        // Act
+        userService.delete(firstUserId + 2);
+
+        // Assert
+        assertEquals(1, waitlistRows());
+        assertEquals(Optional.of(1), sessionService.findWaitlistPosition(sessionId, firstUserId + 1));
+
+        // Act
+        sessionService.delete(sessionId);
+
+        // Assert
+        assertEquals(0, waitlistRows());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SESSIONS WHERE id = ?", Integer.class, sessionId));
+        assertEquals(Optional.empty(), sessionService.findWaitlistPosition(sessionId, firstUserId + 1));
+    }
+
+    private int waitlistRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM WAITLIST WHERE session_id = ?", Integer.class, sessionId);
+    }
+}
@@ -0,0 +1,200 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+@ExtendWith(MockitoExtension.class)
+public class WaitlistServiceTest {
+
+    private static Instant startedAt;
+
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private WaitlistService waitlistService;
+
+    @BeforeAll
+    public static void initializeTestStartTime() {
+        startedAt = Instant.now();
+        log.info("Starts tests at {}", startedAt);
+    }
+
+    @AfterAll
+    public static void displayTestDuration() {
+        Instant endedAt = Instant.now();
+        log.info("Test duration : {} ms", Duration.between(startedAt, endedAt).toMillis());
+    }
+
+    @BeforeEach
+    public void setup() {
+        waitlistService = new WaitlistService(waitlistRepository, sessionRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("Queued users should get their FIFO position, then be answered from memory")
+    public void enqueue_ShouldReturnPositionFromMirror() {
+        // Arrange
+        when(waitlistRepository.enqueue(eq(1L), any())).thenReturn(1);
+        when(waitlistRepository.findBySessionIdAndUserId(1L, 7L)).thenReturn(Optional.of(new WaitlistEntry(10L, 1L, 7L, null)));
+        when(waitlistRepository.findBySessionIdAndUserId(1L, 8L)).thenReturn(Optional.of(new WaitlistEntry(11L, 1L, 8L, null)));
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(Collections.emptyList());
+
+        // Act
+        int first = waitlistService.enqueue(1L, 7L);
+        int second = waitlistService.enqueue(1L, 8L);
+
+        // Assert
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(2);
+        assertThat(waitlistService.positionOf(1L, 8L)).contains(2);
+        verify(waitlistRepository, times(1)).findBySessionIdOrderByIdAsc(1L);
+    }
+
+    @Test
+    @DisplayName("Entries reaching the mirror out of order should keep the FIFO order of the table")
+    public void enqueue_WhenCommitsReachMirrorOutOfOrder_ShouldKeepEntryOrder() {
+        // Arrange
+        when(waitlistRepository.enqueue(eq(1L), any())).thenReturn(1);
+        when(waitlistRepository.findBySessionIdAndUserId(1L, 7L)).thenReturn(Optional.of(new WaitlistEntry(10L, 1L, 7L, null)));
+        when(waitlistRepository.findBySessionIdAndUserId(1L, 8L)).thenReturn(Optional.of(new WaitlistEntry(11L, 1L, 8L, null)));
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(Collections.emptyList());
+
+        // Act
+        int later = waitlistService.enqueue(1L, 8L);
+        int earlier = waitlistService.enqueue(1L, 7L);
+
+        // Assert
+        assertThat(later).isEqualTo(1);
+        assertThat(earlier).isEqualTo(1);
+        assertThat(waitlistService.positionOf(1L, 8L)).contains(2);
+    }
+
+    @Test
+    @DisplayName("A user already waiting should keep their position")
+    public void enqueue_WhenAlreadyWaiting_ShouldKeepPosition() {
+        // Arrange
+        when(waitlistRepository.enqueue(1L, 8L)).thenThrow(new DuplicateKeyException("Duplicate entry"));
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(entries(7L, 8L));
+
+        // Act
+        int position = waitlistService.enqueue(1L, 8L);
+
+        // Assert
+        assertThat(position).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A participant should not be queued and an unknown user should not be found")
+    public void enqueue_WhenNotQueued_ShouldThrow() {
+        // Arrange
+        when(waitlistRepository.enqueue(eq(1L), any())).thenReturn(0);
+        when(userRepository.existsById(7L)).thenReturn(true);
+        when(userRepository.existsById(8L)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> waitlistService.enqueue(1L, 7L)).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> waitlistService.enqueue(1L, 8L)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("A freed seat should go to the head of the waitlist, the next user moving up")
+    public void promoteNext_ShouldSeatHead() {
+        // Arrange
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(entries(7L, 8L));
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L))
+                .thenReturn(Optional.of(new WaitlistEntry(10L, 1L, 7L, null)));
+        when(sessionRepository.takeSeat(1L)).thenReturn(1);
+
+        // Act
+        Optional<Long> promoted = waitlistService.promoteNext(1L);
+
+        // Assert
+        assertThat(promoted).contains(7L);
+        verify(waitlistRepository).remove(1L, 7L);
+        verify(sessionRepository).addParticipant(1L, 7L);
+        assertThat(waitlistService.positionOf(1L, 7L)).isEmpty();
+        assertThat(waitlistService.positionOf(1L, 8L)).contains(1);
+    }
+
+    @Test
+    @DisplayName("Without anybody waiting, no seat should be taken")
+    public void promoteNext_WithoutWaitlist_ShouldDoNothing() {
+        // Arrange
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(Collections.emptyList());
+
+        // Act
+        Optional<Long> promoted = waitlistService.promoteNext(1L);
+
+        // Assert
+        assertThat(promoted).isEmpty();
+        verifyNoInteractions(sessionRepository);
+    }
+
+    @Test
+    @DisplayName("Removing a session should delete its rows and forget its mirror")
+    public void removeSession_ShouldDeleteRowsAndMirror() {
+        // Arrange
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(entries(7L), Collections.emptyList());
+        assertThat(waitlistService.hasWaiting(1L)).isTrue();
+
+        // Act
+        waitlistService.removeSession(1L);
+
+        // Assert
+        verify(waitlistRepository).deleteBySessionId(1L);
+        assertThat(waitlistService.hasWaiting(1L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Removing a user should delete their rows and take them out of every loaded mirror")
+    public void removeUser_ShouldDeleteRowsAndForgetUser() {
+        // Arrange
+        when(waitlistRepository.findBySessionIdOrderByIdAsc(1L)).thenReturn(entries(7L, 8L));
+        when(waitlistRepository.deleteByUserId(7L)).thenReturn(1);
+        assertThat(waitlistService.positionOf(1L, 8L)).contains(2);
+
+        // Act
+        waitlistService.removeUser(7L);
+
+        // Assert
+        assertThat(waitlistService.positionOf(1L, 7L)).isEmpty();
+        assertThat(waitlistService.positionOf(1L, 8L)).contains(1);
+    }
+
+    private static List<WaitlistEntry> entries(Long... userIds) {
+        List<WaitlistEntry> entries = new ArrayList<>();
+        for (Long userId : userIds) {
+            entries.add(new WaitlistEntry(10L + entries.size(), 1L, userId, null));
+        }
+        return entries;
+    }
+}